@@ -5,8 +5,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -23,6 +27,8 @@ class ExecutorServiceConfiguration implements Thread.UncaughtExceptionHandler {
     private static final int MAXIMUM_POOL_SIZE = 2 * CORE_POOL_SIZE;
     private static final int SEND_QUEUE_MAX_CAPACITY_SIZE = 2000;
     private static final int PRELOAD_QUEUE_MAX_CAPACITY_SIZE = 100;
+    private static final int COMPARE_QUEUE_MAX_CAPACITY_SIZE = 2000;
+    private static final int COMPARE_LOAD_QUEUE_MAX_CAPACITY_SIZE = 2000;
 
     @Bean
     public ExecutorService preloadExecutorService() {
@@ -46,8 +52,143 @@ class ExecutorServiceConfiguration implements Thread.UncaughtExceptionHandler {
                 TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(SEND_QUEUE_MAX_CAPACITY_SIZE), threadFactory);
     }
 
+    /**
+     * the completions of the non-blocking sends, the queue is unbounded because the submitting is bounded
+     * by the in-flight permits of async sending, which are released after the completion runs.
+     */
+    @Bean
+    public ExecutorService sendCompletionExecutorService() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("replay-send-completion-%d")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(this)
+                .build();
+        return new ThreadPoolExecutor(MAXIMUM_POOL_SIZE,
+                MAXIMUM_POOL_SIZE, KEEP_ALIVE_TIME,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    /**
+     * the submitter is blocked when the queue is full, so the sending slows down if comparison can't keep up
+     */
+    @Bean
+    public ExecutorService compareExecutorService() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("replay-compare-%d")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(this)
+                .build();
+        return new ThreadPoolExecutor(MAXIMUM_POOL_SIZE,
+                MAXIMUM_POOL_SIZE, KEEP_ALIVE_TIME,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(COMPARE_QUEUE_MAX_CAPACITY_SIZE), threadFactory,
+                new BlockingSubmitPolicy());
+    }
+
+    /**
+     * the actions of plan loaded concurrently, the plan thread loads it if the queue is full
+     */
+    @Bean
+    public ExecutorService actionLoadExecutorService() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("replay-action-load-%d")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(this)
+                .build();
+        return new ThreadPoolExecutor(CORE_POOL_SIZE,
+                MAXIMUM_POOL_SIZE, KEEP_ALIVE_TIME,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(PRELOAD_QUEUE_MAX_CAPACITY_SIZE), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * the streaming loaders of plans, each one hands over pages to its plan thread, so it never runs on the caller.
+     * it's rejected without queueing when all threads busy, then the plan is loaded sequentially.
+     */
+    @Bean
+    public ExecutorService streamingLoadExecutorService() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("replay-streaming-load-%d")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(this)
+                .build();
+        return new ThreadPoolExecutor(CORE_POOL_SIZE,
+                MAXIMUM_POOL_SIZE, KEEP_ALIVE_TIME,
+                TimeUnit.MILLISECONDS, new SynchronousQueue<>(), threadFactory);
+    }
+
+    /**
+     * the case count queries of the creating plan, it's rejected if the queue is full, so the request thread
+     * never runs the queries beyond the deadline of counting
+     */
+    @Bean
+    public ExecutorService caseCountExecutorService() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("replay-case-count-%d")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(this)
+                .build();
+        return new ThreadPoolExecutor(CORE_POOL_SIZE,
+                MAXIMUM_POOL_SIZE, KEEP_ALIVE_TIME,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(PRELOAD_QUEUE_MAX_CAPACITY_SIZE), threadFactory);
+    }
+
+    /**
+     * the view record requests of pinned cases, the loading thread requests it if the queue is full
+     */
+    @Bean
+    public ExecutorService viewRecordExecutorService() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("replay-view-record-%d")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(this)
+                .build();
+        return new ThreadPoolExecutor(CORE_POOL_SIZE,
+                MAXIMUM_POOL_SIZE, KEEP_ALIVE_TIME,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(PRELOAD_QUEUE_MAX_CAPACITY_SIZE), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * the io of loading replay results to compare, the caller runs it if the queue is full
+     */
+    @Bean
+    public ExecutorService compareLoadExecutorService() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("replay-compare-load-%d")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(this)
+                .build();
+        return new ThreadPoolExecutor(MAXIMUM_POOL_SIZE,
+                MAXIMUM_POOL_SIZE, KEEP_ALIVE_TIME,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(COMPARE_LOAD_QUEUE_MAX_CAPACITY_SIZE), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * the batch queries of replay results, it's separated from the compare load workers waiting the batches.
+     * the rejected batch falls back to query one by one by the workers
+     */
+    @Bean
+    public ExecutorService compareBatchQueryExecutorService() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("replay-compare-batch-query-%d")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(this)
+                .build();
+        return new ThreadPoolExecutor(CORE_POOL_SIZE,
+                CORE_POOL_SIZE, KEEP_ALIVE_TIME,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(PRELOAD_QUEUE_MAX_CAPACITY_SIZE), threadFactory);
+    }
+
     @Override
     public void uncaughtException(Thread t, Throwable e) {
         LOGGER.error("uncaughtException {} ,error :{}", t.getName(), e.getMessage(), e);
     }
+
+    private static final class BlockingSubmitPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("executor has been shutdown");
+            }
+            try {
+                executor.getQueue().put(runnable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -3,9 +3,13 @@ package com.arextest.schedule.beans;
 import com.arextest.common.utils.SerializationUtils;
 import com.arextest.model.mock.Mocker;
 import com.arextest.model.mock.Mocker.Target;
+import com.arextest.schedule.serialization.ZstdBinarySerializer;
 import com.mongodb.MongoClientSettings;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonBinary;
 import org.bson.BsonReader;
+import org.bson.BsonType;
 import org.bson.BsonWriter;
 import org.bson.codecs.Codec;
 import org.bson.codecs.DecoderContext;
@@ -13,6 +17,7 @@ import org.bson.codecs.EncoderContext;
 import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.types.Binary;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
@@ -39,15 +44,23 @@ import java.util.List;
 @Slf4j
 @Configuration(proxyBeanMethods = false)
 public class MongodbConfiguration {
+    private static final String BASE64_TARGET_FORMAT = "base64";
     @Value("${mongo.uri}")
     private String mongoUrl;
+    /**
+     * binary: the compressed target is written as bson binary.
+     * base64: the compressed target is written as base64 text, readable by the earlier versions.
+     * both are readable.
+     */
+    @Value("${arex.schedule.mongo.targetFormat:binary}")
+    private String targetFormat;
 
 
     @Bean
     @ConditionalOnMissingBean
     public MongoDatabaseFactory mongoDbFactory() {
         try {
-            return new CompressionMongoClientDatabaseFactory(mongoUrl);
+            return new CompressionMongoClientDatabaseFactory(mongoUrl, binaryTargetFormat());
         } catch (Exception e) {
             LOGGER.error("cannot connect mongodb {}", e.getMessage(), e);
             throw e;
@@ -69,11 +82,42 @@ public class MongodbConfiguration {
 
     private MongoCustomConversions customConversions() {
         List<Converter<?, ?>> converters = new ArrayList<>();
-        converters.add(new TypeReadMockerTargetConverter());
         converters.add(new TypeWriteMockerTargetConverter());
+        converters.add(new TypeReadBinaryMockerTargetConverter());
+        converters.add(new TypeReadBytesMockerTargetConverter());
+        if (binaryTargetFormat()) {
+            converters.add(new TypeWriteBinaryMockerTargetConverter());
+        } else {
+            converters.add(new TypeReadMockerTargetConverter());
+        }
         return new MongoCustomConversions(converters);
     }
 
+    private boolean binaryTargetFormat() {
+        return !StringUtils.equalsIgnoreCase(BASE64_TARGET_FORMAT, targetFormat);
+    }
+
+    private static class TypeReadBinaryMockerTargetConverter implements Converter<Binary, Target> {
+        @Override
+        public Target convert(Binary source) {
+            return ZstdBinarySerializer.deserialize(source.getData(), Target.class);
+        }
+    }
+
+    private static class TypeReadBytesMockerTargetConverter implements Converter<byte[], Target> {
+        @Override
+        public Target convert(byte[] source) {
+            return ZstdBinarySerializer.deserialize(source, Target.class);
+        }
+    }
+
+    private static class TypeWriteBinaryMockerTargetConverter implements Converter<Target, Binary> {
+        @Override
+        public Binary convert(Target source) {
+            return new Binary(ZstdBinarySerializer.serialize(source));
+        }
+    }
+
     private static class TypeWriteMockerTargetConverter implements Converter<String, Target> {
         @Override
         public Target convert(String source) {
@@ -90,14 +134,21 @@ public class MongodbConfiguration {
     }
 
     public static class CompressionMongoClientDatabaseFactory extends SimpleMongoClientDatabaseFactory {
+        private final boolean binaryTarget;
+
         public CompressionMongoClientDatabaseFactory(String connectionString) {
+            this(connectionString, true);
+        }
+
+        public CompressionMongoClientDatabaseFactory(String connectionString, boolean binaryTarget) {
             super(connectionString);
+            this.binaryTarget = binaryTarget;
         }
 
         @Override
         public CodecRegistry getCodecRegistry() {
             CodecRegistry compressionCodecRegistry =
-                    CodecRegistries.fromCodecs(new CompressionCodecImpl<>(Mocker.Target.class));
+                    CodecRegistries.fromCodecs(new CompressionCodecImpl<>(Mocker.Target.class, binaryTarget));
             final CodecRegistry customPojo = CodecRegistries.fromProviders(compressionCodecRegistry, PojoCodecProvider
                     .builder().automatic(true).build());
             return CodecRegistries.fromRegistries(MongoClientSettings.getDefaultCodecRegistry(),
@@ -105,20 +156,32 @@ public class MongodbConfiguration {
 
         }
 
+        /**
+         * reads both the binary and the legacy base64 text, writes the configured one
+         */
         private static final class CompressionCodecImpl<T> implements Codec<T> {
             private final Class<T> target;
+            private final boolean binaryTarget;
 
-            CompressionCodecImpl(Class<T> target) {
+            CompressionCodecImpl(Class<T> target, boolean binaryTarget) {
                 this.target = target;
+                this.binaryTarget = binaryTarget;
             }
 
             @Override
             public T decode(BsonReader reader, DecoderContext decoderContext) {
+                if (reader.getCurrentBsonType() == BsonType.BINARY) {
+                    return ZstdBinarySerializer.deserialize(reader.readBinaryData().getData(), this.target);
+                }
                 return SerializationUtils.useZstdDeserialize(reader.readString(), this.target);
             }
 
             @Override
             public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+                if (binaryTarget) {
+                    writer.writeBinaryData(new BsonBinary(ZstdBinarySerializer.serialize(value)));
+                    return;
+                }
                 String base64Result = SerializationUtils.useZstdSerializeToBase64(value);
                 writer.writeString(base64Result);
             }
@@ -5,7 +5,7 @@ import com.arextest.schedule.comparer.ComparisonWriter;
 import com.arextest.schedule.comparer.ReplayResultComparer;
 import com.arextest.schedule.comparer.impl.DefaultReplayResultComparer;
 import com.arextest.schedule.comparer.impl.PrepareCompareSourceRemoteLoader;
-import com.arextest.schedule.dao.mongodb.ReplayActionCaseItemRepository;
+import com.arextest.schedule.dao.mongodb.ReplayCaseStatusBuffer;
 import com.arextest.schedule.progress.ProgressTracer;
 import com.arextest.schedule.service.ConsoleLogService;
 import lombok.extern.slf4j.Slf4j;
@@ -24,13 +24,13 @@ public class ReplayComparerConfiguration {
             PrepareCompareSourceRemoteLoader sourceRemoteLoader,
             ProgressTracer progressTracer,
             ComparisonWriter comparisonOutputWriter,
-            ReplayActionCaseItemRepository caseItemRepository,
+            ReplayCaseStatusBuffer caseStatusBuffer,
             ConsoleLogService consoleLogService
     ) {
         return new DefaultReplayResultComparer(compareConfigService,
                 sourceRemoteLoader,
                 progressTracer,
                 comparisonOutputWriter,
-                caseItemRepository,consoleLogService);
+                caseStatusBuffer,consoleLogService);
     }
 }
\ No newline at end of file
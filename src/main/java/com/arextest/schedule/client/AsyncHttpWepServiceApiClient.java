@@ -0,0 +1,233 @@
+package com.arextest.schedule.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The non-blocking http client, the returned futures are completed by the io reactor threads,
+ * so the callers should not run any blocking work on the dependent stages without an executor.
+ * <p>
+ * The client is lazily started at the first request.
+ *
+ * @since 2023/4/12
+ */
+@Slf4j
+@Component
+public final class AsyncHttpWepServiceApiClient {
+    private final static int TEN_SECONDS_TIMEOUT = 10_000;
+    private final static long EVICT_CHECK_PERIOD_SECONDS = 5L;
+    @Resource
+    private ObjectMapper objectMapper;
+    @Value("${arex.schedule.http.async.ioThreadCount:0}")
+    private int ioThreadCount;
+    @Resource
+    private HttpPoolSettings poolSettings;
+
+    private volatile CloseableHttpAsyncClient httpAsyncClient;
+    private PoolingNHttpClientConnectionManager connectionManager;
+    private ScheduledExecutorService evictExecutorService;
+
+    public CompletableFuture<ResponseEntity<byte[]>> exchange(String url, HttpMethod method, HttpHeaders headers,
+                                                              byte[] body) {
+        final CompletableFuture<ResponseEntity<byte[]>> future = new CompletableFuture<>();
+        try {
+            getOrStartClient().execute(buildRequest(url, method, headers, body), new CompletableFutureCallback(future));
+        } catch (Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+        return future;
+    }
+
+    /**
+     * only the leading bytes of response body are kept, used when the headers of response are enough
+     */
+    public CompletableFuture<ResponseEntity<byte[]>> exchangeDiscardingBody(String url, HttpMethod method,
+                                                                            HttpHeaders headers, byte[] body,
+                                                                            int keptBodyBytes) {
+        final CompletableFuture<ResponseEntity<byte[]>> future = new CompletableFuture<>();
+        try {
+            getOrStartClient().execute(HttpAsyncMethods.create(buildRequest(url, method, headers, body)),
+                    new BoundedBodyAsyncResponseConsumer(keptBodyBytes), new CompletableFutureCallback(future));
+        } catch (Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+        return future;
+    }
+
+    private HttpUriRequest buildRequest(String url, HttpMethod method, HttpHeaders headers, byte[] body) {
+        RequestBuilder requestBuilder = RequestBuilder.create(method.name()).setUri(url);
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (skipRequestHeader(entry.getKey())) {
+                    continue;
+                }
+                for (String value : entry.getValue()) {
+                    requestBuilder.addHeader(entry.getKey(), value);
+                }
+            }
+        }
+        if (body != null) {
+            requestBuilder.setEntity(new ByteArrayEntity(body));
+        }
+        return requestBuilder.build();
+    }
+
+    public <TRequest> CompletableFuture<ResponseEntity<byte[]>> jsonPost(String url, TRequest request) {
+        final byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            CompletableFuture<ResponseEntity<byte[]>> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return exchange(url, HttpMethod.POST, headers, body);
+    }
+
+    /**
+     * the entity decides the length and encoding of body, same as the blocking http components transport
+     */
+    private boolean skipRequestHeader(String name) {
+        return HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) || HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name);
+    }
+
+    private CloseableHttpAsyncClient getOrStartClient() throws IOReactorException {
+        CloseableHttpAsyncClient client = this.httpAsyncClient;
+        if (client != null) {
+            return client;
+        }
+        synchronized (this) {
+            if (this.httpAsyncClient == null) {
+                this.httpAsyncClient = startClient();
+            }
+            return this.httpAsyncClient;
+        }
+    }
+
+    private CloseableHttpAsyncClient startClient() throws IOReactorException {
+        IOReactorConfig.Builder reactorConfigBuilder = IOReactorConfig.custom()
+                .setConnectTimeout(TEN_SECONDS_TIMEOUT)
+                .setSoTimeout(TEN_SECONDS_TIMEOUT)
+                .setSoKeepAlive(true);
+        if (ioThreadCount > 0) {
+            reactorConfigBuilder.setIoThreadCount(ioThreadCount);
+        }
+        connectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(reactorConfigBuilder.build()));
+        poolSettings.applyLimits(connectionManager);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(TEN_SECONDS_TIMEOUT)
+                .setSocketTimeout(TEN_SECONDS_TIMEOUT)
+                .setConnectionRequestTimeout(poolSettings.getAcquireTimeoutMillis())
+                .build();
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(poolSettings.keepAliveStrategy())
+                .disableCookieManagement()
+                .build();
+        client.start();
+        evictExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("replay-async-http-evict-%d")
+                .setDaemon(true)
+                .build());
+        evictExecutorService.scheduleWithFixedDelay(this::evictConnections, EVICT_CHECK_PERIOD_SECONDS,
+                EVICT_CHECK_PERIOD_SECONDS, TimeUnit.SECONDS);
+        LOGGER.info("async http client started, max total: {} ,max per route: {} ,per host: {}",
+                poolSettings.getMaxTotal(), poolSettings.getMaxPerRoute(), poolSettings.getMaxPerHost());
+        return client;
+    }
+
+    private void evictConnections() {
+        try {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(poolSettings.getIdleEvictSeconds(), TimeUnit.SECONDS);
+        } catch (Throwable throwable) {
+            LOGGER.warn("evict async http connections error: {}", throwable.getMessage(), throwable);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (evictExecutorService != null) {
+            evictExecutorService.shutdownNow();
+        }
+        if (httpAsyncClient != null) {
+            try {
+                httpAsyncClient.close();
+            } catch (IOException e) {
+                LOGGER.warn("close async http client error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final class CompletableFutureCallback implements FutureCallback<HttpResponse> {
+        private final CompletableFuture<ResponseEntity<byte[]>> future;
+
+        private CompletableFutureCallback(CompletableFuture<ResponseEntity<byte[]>> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void completed(HttpResponse response) {
+            try {
+                HttpHeaders responseHeaders = new HttpHeaders();
+                for (Header header : response.getAllHeaders()) {
+                    responseHeaders.add(header.getName(), header.getValue());
+                }
+                byte[] responseBody = response.getEntity() == null ? null :
+                        EntityUtils.toByteArray(response.getEntity());
+                future.complete(ResponseEntity.status(response.getStatusLine().getStatusCode())
+                        .headers(responseHeaders)
+                        .body(responseBody));
+            } catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            future.completeExceptionally(ex);
+        }
+
+        @Override
+        public void cancelled() {
+            future.cancel(false);
+        }
+    }
+}
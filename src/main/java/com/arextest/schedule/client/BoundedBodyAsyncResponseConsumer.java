@@ -0,0 +1,71 @@
+package com.arextest.schedule.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The non-blocking version of {@link BoundedBodyResponseExtractor}, the content is read into a small
+ * buffer and only the leading bytes are kept as the entity of response.
+ *
+ * @since 2023/4/21
+ */
+final class BoundedBodyAsyncResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+    private static final int DISCARD_BUFFER_SIZE = 8192;
+    private final byte[] kept;
+    private int keptSize;
+    private ByteBuffer readBuffer;
+    private HttpResponse response;
+    private ContentType contentType;
+
+    BoundedBodyAsyncResponseConsumer(int keptBodyBytes) {
+        this.kept = new byte[Math.max(keptBodyBytes, 0)];
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) {
+        this.response = response;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+        this.contentType = contentType;
+        this.readBuffer = ByteBuffer.allocate(DISCARD_BUFFER_SIZE);
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        int count;
+        while ((count = decoder.read(readBuffer)) > 0) {
+            readBuffer.flip();
+            int keepCount = Math.min(count, kept.length - keptSize);
+            if (keepCount > 0) {
+                readBuffer.get(kept, keptSize, keepCount);
+                keptSize += keepCount;
+            }
+            readBuffer.clear();
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        if (readBuffer != null) {
+            response.setEntity(new ByteArrayEntity(Arrays.copyOf(kept, keptSize), contentType));
+        }
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        this.readBuffer = null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.arextest.schedule.client;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseExtractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Keep the status and headers of response, only the leading bytes of body are kept and the others discarded,
+ * the body is still drained so that the connection could be reused.
+ *
+ * @since 2023/4/21
+ */
+final class BoundedBodyResponseExtractor implements ResponseExtractor<ResponseEntity<byte[]>> {
+    private static final int DISCARD_BUFFER_SIZE = 8192;
+    private final int keptBodyBytes;
+
+    BoundedBodyResponseExtractor(int keptBodyBytes) {
+        this.keptBodyBytes = Math.max(keptBodyBytes, 0);
+    }
+
+    @Override
+    public ResponseEntity<byte[]> extractData(ClientHttpResponse response) throws IOException {
+        return ResponseEntity.status(response.getRawStatusCode())
+                .headers(response.getHeaders())
+                .body(readBounded(response.getBody()));
+    }
+
+    private byte[] readBounded(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return null;
+        }
+        byte[] kept = new byte[keptBodyBytes];
+        int keptSize = 0;
+        while (keptSize < kept.length) {
+            int count = inputStream.read(kept, keptSize, kept.length - keptSize);
+            if (count < 0) {
+                return Arrays.copyOf(kept, keptSize);
+            }
+            keptSize += count;
+        }
+        byte[] discardBuffer = new byte[DISCARD_BUFFER_SIZE];
+        while (inputStream.read(discardBuffer) >= 0) {
+            // discard the remaining body
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,18 @@
+package com.arextest.schedule.client;
+
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+/**
+ * The transport used by {@link HttpWepServiceApiClient}, selected by {@code arex.schedule.http.transport}.
+ *
+ * @since 2023/4/10
+ */
+public interface ClientHttpRequestFactoryProvider {
+    /**
+     * Indicate the instance should be working for the configured transport name,
+     * return true should be used,others skipped
+     */
+    boolean isSupported(String transport);
+
+    ClientHttpRequestFactory create(int connectTimeoutMillis, int readTimeoutMillis);
+}
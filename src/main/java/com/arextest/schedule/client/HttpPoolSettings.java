@@ -0,0 +1,124 @@
+package com.arextest.schedule.client;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.UnsupportedSchemeException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.pool.ConnPoolControl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The connection pool settings shared by the blocking pooled transport and the non-blocking client.
+ * <p>
+ * example of per destination limits: {@code arex.schedule.http.pool.maxPerHost=10.3.2.42:8080=50,https://target=20}
+ * <p>
+ * each destination is {@code [scheme://]host[:port]}, the scheme is http by default and the port is the default
+ * of the scheme if absent, an entry with path or unsupported scheme is rejected.
+ *
+ * @since 2023/4/26
+ */
+@Slf4j
+@Getter
+@Component
+final class HttpPoolSettings {
+    private static final String HOST_LIMIT_SEPARATOR = ",";
+    private static final String HOST_LIMIT_VALUE_SEPARATOR = "=";
+    private static final String SCHEME_SEPARATOR = "://";
+
+    @Value("${arex.schedule.http.pool.maxTotal:512}")
+    private int maxTotal;
+    @Value("${arex.schedule.http.pool.maxPerRoute:64}")
+    private int maxPerRoute;
+    @Value("${arex.schedule.http.pool.maxPerHost:}")
+    private String maxPerHost;
+    @Value("${arex.schedule.http.pool.keepAliveSeconds:60}")
+    private long keepAliveSeconds;
+    @Value("${arex.schedule.http.pool.idleEvictSeconds:30}")
+    private long idleEvictSeconds;
+    @Value("${arex.schedule.http.pool.validateAfterInactivityMillis:2000}")
+    private int validateAfterInactivityMillis;
+    @Value("${arex.schedule.http.pool.acquireTimeoutMillis:5000}")
+    private int acquireTimeoutMillis;
+
+    private Map<HttpRoute, Integer> hostLimits = Collections.emptyMap();
+
+    @PostConstruct
+    void init() {
+        this.hostLimits = parseHostLimits(maxPerHost);
+    }
+
+    /**
+     * apply the total, default per route and per destination limits to the pool of either client
+     */
+    void applyLimits(ConnPoolControl<HttpRoute> pool) {
+        pool.setMaxTotal(maxTotal);
+        pool.setDefaultMaxPerRoute(maxPerRoute);
+        for (Map.Entry<HttpRoute, Integer> hostLimit : hostLimits.entrySet()) {
+            pool.setMaxPerRoute(hostLimit.getKey(), hostLimit.getValue());
+        }
+    }
+
+    /**
+     * use the Keep-Alive header of response if present, otherwise the configured default
+     */
+    ConnectionKeepAliveStrategy keepAliveStrategy() {
+        final long defaultKeepAliveMillis = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+        return (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : defaultKeepAliveMillis;
+        };
+    }
+
+    private static Map<HttpRoute, Integer> parseHostLimits(String maxPerHost) {
+        if (StringUtils.isBlank(maxPerHost)) {
+            return Collections.emptyMap();
+        }
+        Map<HttpRoute, Integer> result = new LinkedHashMap<>();
+        for (String hostLimit : StringUtils.split(maxPerHost, HOST_LIMIT_SEPARATOR)) {
+            int index = hostLimit.lastIndexOf(HOST_LIMIT_VALUE_SEPARATOR);
+            if (index <= 0) {
+                LOGGER.warn("skip invalid http pool host limit: {}", hostLimit);
+                continue;
+            }
+            String host = StringUtils.trim(hostLimit.substring(0, index));
+            int limit = NumberUtils.toInt(StringUtils.trim(hostLimit.substring(index + 1)));
+            if (limit <= 0) {
+                LOGGER.warn("skip invalid http pool host limit: {}", hostLimit);
+                continue;
+            }
+            try {
+                result.put(toRoute(host), limit);
+            } catch (Throwable throwable) {
+                LOGGER.warn("skip invalid http pool host limit: {} ,error: {}", hostLimit, throwable.getMessage());
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * the same route as planned for the requests without proxy, the port is resolved and the secure follows the scheme
+     */
+    private static HttpRoute toRoute(String host) throws UnsupportedSchemeException {
+        String authority = host.contains(SCHEME_SEPARATOR) ? StringUtils.substringAfter(host, SCHEME_SEPARATOR) : host;
+        if (authority.contains("/")) {
+            throw new IllegalArgumentException("path is unsupported");
+        }
+        HttpHost httpHost = HttpHost.create(host);
+        int port = DefaultSchemePortResolver.INSTANCE.resolve(httpHost);
+        HttpHost target = new HttpHost(httpHost.getHostName(), port, httpHost.getSchemeName());
+        return new HttpRoute(target, null, "https".equalsIgnoreCase(httpHost.getSchemeName()));
+    }
+}
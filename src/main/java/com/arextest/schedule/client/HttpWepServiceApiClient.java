@@ -3,13 +3,14 @@ package com.arextest.schedule.client;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.ResourceHttpMessageConverter;
@@ -42,12 +43,14 @@ public final class HttpWepServiceApiClient {
     private ZstdJacksonMessageConverter zstdJacksonMessageConverter;
     @Resource
     private ObjectMapper objectMapper;
+    @Resource
+    private List<ClientHttpRequestFactoryProvider> requestFactoryProviderList;
+    @Value("${arex.schedule.http.transport:pooled}")
+    private String transport;
 
     @PostConstruct
     private void initRestTemplate() {
-        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-        requestFactory.setConnectTimeout(TEN_SECONDS_TIMEOUT);
-        requestFactory.setReadTimeout(TEN_SECONDS_TIMEOUT);
+        ClientHttpRequestFactory requestFactory = createRequestFactory();
         final int initialCapacity = 10;
         List<HttpMessageConverter<?>> httpMessageConverterList = new ArrayList<>(initialCapacity);
         httpMessageConverterList.add(zstdJacksonMessageConverter);
@@ -64,6 +67,18 @@ public final class HttpWepServiceApiClient {
         this.restTemplate.setRequestFactory(requestFactory);
     }
 
+    private ClientHttpRequestFactory createRequestFactory() {
+        for (ClientHttpRequestFactoryProvider provider : requestFactoryProviderList) {
+            if (provider.isSupported(transport)) {
+                LOGGER.info("http transport: {} , provider: {}", transport, provider.getClass().getSimpleName());
+                return provider.create(TEN_SECONDS_TIMEOUT, TEN_SECONDS_TIMEOUT);
+            }
+        }
+        LOGGER.warn("unsupported http transport: {} , fallback to {}", transport,
+                SimpleClientHttpRequestFactoryProvider.SIMPLE_TRANSPORT);
+        return new SimpleClientHttpRequestFactoryProvider().create(TEN_SECONDS_TIMEOUT, TEN_SECONDS_TIMEOUT);
+    }
+
     public <TResponse> TResponse get(String url, Map<String, ?> urlVariables, Class<TResponse> responseType) {
         try {
             return restTemplate.getForObject(url, responseType, urlVariables);
@@ -129,6 +144,15 @@ public final class HttpWepServiceApiClient {
         return restTemplate.exchange(url, method, requestEntity, responseType);
     }
 
+    /**
+     * only the leading bytes of response body are kept, used when the headers of response are enough
+     */
+    public ResponseEntity<byte[]> exchangeDiscardingBody(String url, HttpMethod method, HttpEntity<?> requestEntity,
+                                                         int keptBodyBytes) throws RestClientException {
+        return restTemplate.execute(url, method, restTemplate.httpEntityCallback(requestEntity),
+                new BoundedBodyResponseExtractor(keptBodyBytes));
+    }
+
     public <TRequest, TResponse> ResponseEntity<TResponse> jsonPostWithThrow(String url, HttpEntity<TRequest> request,
                                                                              Class<TResponse> responseType) throws RestClientException {
         return restTemplate.postForEntity(url, wrapJsonContentType(request), responseType);
@@ -0,0 +1,77 @@
+package com.arextest.schedule.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The apache http client transport, connections are kept alive and reused by a bounded pool per route,
+ * the limits are from the {@link HttpPoolSettings}.
+ *
+ * @since 2023/4/10
+ */
+@Slf4j
+@Component
+final class PooledClientHttpRequestFactoryProvider implements ClientHttpRequestFactoryProvider {
+    static final String POOLED_TRANSPORT = "pooled";
+
+    @Resource
+    private HttpPoolSettings poolSettings;
+
+    private final List<CloseableHttpClient> createdClientList = new CopyOnWriteArrayList<>();
+
+    @Override
+    public boolean isSupported(String transport) {
+        return StringUtils.equalsIgnoreCase(POOLED_TRANSPORT, transport);
+    }
+
+    @Override
+    public ClientHttpRequestFactory create(int connectTimeoutMillis, int readTimeoutMillis) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setValidateAfterInactivity(poolSettings.getValidateAfterInactivityMillis());
+        poolSettings.applyLimits(connectionManager);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .setConnectionRequestTimeout(poolSettings.getAcquireTimeoutMillis())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(poolSettings.keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(poolSettings.getIdleEvictSeconds(), TimeUnit.SECONDS)
+                .disableCookieManagement()
+                .build();
+        createdClientList.add(httpClient);
+        LOGGER.info("pooled http transport created, max total: {} ,max per route: {} ,per host: {}",
+                poolSettings.getMaxTotal(), poolSettings.getMaxPerRoute(), poolSettings.getMaxPerHost());
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    @PreDestroy
+    void close() {
+        for (CloseableHttpClient httpClient : createdClientList) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                LOGGER.warn("close pooled http client error: {}", e.getMessage(), e);
+            }
+        }
+        createdClientList.clear();
+    }
+}
@@ -0,0 +1,29 @@
+package com.arextest.schedule.client;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * The jdk {@link java.net.HttpURLConnection} transport without any pool configured.
+ *
+ * @since 2023/4/10
+ */
+@Component
+final class SimpleClientHttpRequestFactoryProvider implements ClientHttpRequestFactoryProvider {
+    static final String SIMPLE_TRANSPORT = "simple";
+
+    @Override
+    public boolean isSupported(String transport) {
+        return StringUtils.equalsIgnoreCase(SIMPLE_TRANSPORT, transport);
+    }
+
+    @Override
+    public ClientHttpRequestFactory create(int connectTimeoutMillis, int readTimeoutMillis) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMillis);
+        requestFactory.setReadTimeout(readTimeoutMillis);
+        return requestFactory;
+    }
+}
@@ -0,0 +1,130 @@
+package com.arextest.schedule.common;
+
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limit the in-flight cases by the gradient of round trip time, the rate is only capped by the max qps of plan.
+ * <p>
+ * The long term rtt is the moving average of samples, the limit grows by sqrt(limit) while the sampled rtt is not
+ * beyond the tolerance of long term rtt, and shrinks by the ratio of them when the target is getting slower.
+ * Any failure shrinks the limit multiplicatively. The learned limit is kept between pages.
+ *
+ * @since 2023/4/22
+ */
+@SuppressWarnings("UnstableApiUsage")
+@Slf4j
+final class GradientSendLimitController implements SendLimitController {
+    static final String GRADIENT_MODE = "gradient";
+    private static final int INITIAL_LIMIT = 4;
+    private static final int MIN_LIMIT = 1;
+    private static final double SMOOTHING = 0.2;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double FAIL_BACKOFF_RATIO = 0.9;
+    private static final int LONG_RTT_WINDOW = 100;
+    private static final double LONG_RTT_DECAY = 0.95;
+    private static final long MAX_ACQUIRE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition inFlightReleased = lock.newCondition();
+    private final RateLimiter rateLimiter;
+    private int maxLimit;
+    private double limit;
+    private double longRtt;
+    private int inFlight;
+
+    GradientSendLimitController(int maxRate) {
+        this.rateLimiter = RateLimiter.create(maxRate);
+        this.maxLimit = maxRate;
+        this.limit = Math.min(INITIAL_LIMIT, maxRate);
+    }
+
+    @Override
+    public boolean acquire() {
+        lock.lock();
+        try {
+            long remainingNanos = MAX_ACQUIRE_WAIT_NANOS;
+            while (inFlight >= (int) limit) {
+                if (remainingNanos <= 0) {
+                    LOGGER.warn("wait in-flight sending timeout, in-flight: {} ,limit: {}", inFlight, (int) limit);
+                    return false;
+                }
+                remainingNanos = inFlightReleased.awaitNanos(remainingNanos);
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            LOGGER.warn("wait in-flight sending interrupted, in-flight: {} ,limit: {}", inFlight, (int) limit);
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+        rateLimiter.acquire();
+        return true;
+    }
+
+    @Override
+    public void release(boolean success, long rttMillis) {
+        lock.lock();
+        try {
+            int limitBefore = (int) limit;
+            int inFlightBefore = inFlight;
+            inFlight = Math.max(inFlight - 1, 0);
+            if (!success) {
+                limit = Math.max(MIN_LIMIT, limit * FAIL_BACKOFF_RATIO);
+            } else if (rttMillis > 0) {
+                updateLimit(rttMillis, inFlightBefore);
+            }
+            if ((int) limit != limitBefore) {
+                LOGGER.info("send in-flight limit: {} -> {} ,long rtt: {} ,rtt: {}", limitBefore, (int) limit,
+                        (long) longRtt, rttMillis);
+            }
+            inFlightReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateLimit(long rtt, int inFlightBefore) {
+        if (longRtt <= 0) {
+            longRtt = rtt;
+        } else {
+            longRtt += (rtt - longRtt) / LONG_RTT_WINDOW;
+            if (longRtt > 2 * rtt) {
+                // recover quickly from a slow period of target
+                longRtt *= LONG_RTT_DECAY;
+            }
+        }
+        // the limit was not the bottleneck, the samples couldn't tell whether more is acceptable
+        if (inFlightBefore < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRtt / rtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(MIN_LIMIT, Math.min(maxLimit, newLimit));
+    }
+
+    @Override
+    public void reset() {
+        LOGGER.info("keep the learned in-flight limit: {} ,max: {}", (int) limit, maxLimit);
+    }
+
+    @Override
+    public void setMaxRate(int maxRate) {
+        lock.lock();
+        try {
+            this.maxLimit = maxRate;
+            this.limit = Math.min(limit, maxRate);
+            inFlightReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        rateLimiter.setRate(maxRate);
+    }
+}
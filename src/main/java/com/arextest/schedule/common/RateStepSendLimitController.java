@@ -0,0 +1,98 @@
+package com.arextest.schedule.common;
+
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The rate starts from the lowest at every page, increased by one after N(20) continuous successes,
+ * reduced by one after any error and then 5N continuous successes are required to increase again.
+ *
+ * @since 2023/4/22
+ */
+@SuppressWarnings("UnstableApiUsage")
+@Slf4j
+final class RateStepSendLimitController implements SendLimitController {
+    static final String RATE_MODE = "rate";
+    private static final int DEFAULT_MIN_RATE = 1;
+    private static final int SUCCESS_COUNT_TO_BALANCE_NO_ERROR = 20;
+    private static final int SUCCESS_COUNT_TO_BALANCE_WITH_ERROR = 5 * SUCCESS_COUNT_TO_BALANCE_NO_ERROR;
+    private final RateLimiter rateLimiter;
+    private final AtomicInteger continuousSuccessCounter = new AtomicInteger();
+    private int sendMaxRate;
+    private volatile int permits;
+    private volatile boolean hasError;
+    private volatile int checkCount = SUCCESS_COUNT_TO_BALANCE_NO_ERROR;
+
+    RateStepSendLimitController() {
+        this.rateLimiter = RateLimiter.create(DEFAULT_MIN_RATE);
+        this.permits = DEFAULT_MIN_RATE;
+    }
+
+    @Override
+    public boolean acquire() {
+        tryChangeRate();
+        rateLimiter.acquire();
+        return true;
+    }
+
+    @Override
+    public void release(boolean success, long rttMillis) {
+        if (success) {
+            continuousSuccessCounter.incrementAndGet();
+            return;
+        }
+        continuousSuccessCounter.set(0);
+        hasError = true;
+    }
+
+    @Override
+    public void reset() {
+        continuousSuccessCounter.set(0);
+        checkCount = SUCCESS_COUNT_TO_BALANCE_NO_ERROR;
+        permits = DEFAULT_MIN_RATE;
+        LOGGER.info("reset rate to default permits: {}", permits);
+        this.changeRateWithLog(permits);
+    }
+
+    @Override
+    public void setMaxRate(int maxRate) {
+        this.sendMaxRate = maxRate;
+    }
+
+    private void tryChangeRate() {
+        if (hasError) {
+            tryReduceRate();
+            hasError = false;
+            checkCount = SUCCESS_COUNT_TO_BALANCE_WITH_ERROR;
+            return;
+        }
+        if (continuousSuccessCounter.get() > checkCount) {
+            tryIncreaseRate();
+            continuousSuccessCounter.set(0);
+            checkCount = SUCCESS_COUNT_TO_BALANCE_NO_ERROR;
+        }
+    }
+
+    private synchronized void tryReduceRate() {
+        LOGGER.info("try reduce rate , permits: {}", this.permits);
+        if (this.permits <= DEFAULT_MIN_RATE) {
+            return;
+        }
+        this.changeRateWithLog(this.permits--);
+    }
+
+    private synchronized void tryIncreaseRate() {
+        if (this.permits >= sendMaxRate) {
+            return;
+        }
+        this.changeRateWithLog(this.permits++);
+    }
+
+    private void changeRateWithLog(double newPermitsPerSecond) {
+        double beforeValue = this.rateLimiter.getRate();
+        this.rateLimiter.setRate(newPermitsPerSecond);
+        LOGGER.info("send rate permits: {} -> {} (per second)", beforeValue, newPermitsPerSecond);
+    }
+}
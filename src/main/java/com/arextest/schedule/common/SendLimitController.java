@@ -0,0 +1,29 @@
+package com.arextest.schedule.common;
+
+/**
+ * The pace of sending cases for one plan, selected by {@code arex.schedule.send.limiter.mode}.
+ * the fail breaking is not decided by the controller but the {@link SendSemaphoreLimiter}.
+ *
+ * @since 2023/4/22
+ */
+interface SendLimitController {
+    /**
+     * blocked until the case is allowed to send
+     *
+     * @return false if no slot was taken, such as the wait timeout or interrupted, then the case must not be sent
+     * and the controller must not be released for it
+     */
+    boolean acquire();
+
+    /**
+     * @param rttMillis the elapsed millis of sending, negative if unknown
+     */
+    void release(boolean success, long rttMillis);
+
+    /**
+     * invoked before sending every page of cases
+     */
+    void reset();
+
+    void setMaxRate(int maxRate);
+}
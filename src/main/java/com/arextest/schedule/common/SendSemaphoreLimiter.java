@@ -1,8 +1,8 @@
 package com.arextest.schedule.common;
 
-import com.google.common.util.concurrent.RateLimiter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -10,67 +10,69 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @author hzmeng
  * @since 2021/11/09
  */
-@SuppressWarnings("UnstableApiUsage")
 @Slf4j
 public final class SendSemaphoreLimiter {
-    private static final int DEFAULT_MIN_RATE = 1;
     private static final int DEFAULT_MAX_RATE = 20;
-    private int sendMaxRate;
-    private volatile int permits;
     private final ReplayHealthy checker = new ReplayHealthy();
-    private final RateLimiter rateLimiter;
+    private final SendLimitController controller;
     @Setter
     private int totalTasks;
 
     public SendSemaphoreLimiter() {
-        this.rateLimiter = RateLimiter.create(DEFAULT_MIN_RATE);
-        this.permits = DEFAULT_MIN_RATE;
+        this(RateStepSendLimitController.RATE_MODE);
     }
 
-    public boolean failBreak() {
-        return checker.failBreak();
-    }
-
-    public void acquire() {
-        checker.tryChangeRate();
-        rateLimiter.acquire();
+    public SendSemaphoreLimiter(String controllerMode) {
+        if (StringUtils.equalsIgnoreCase(GradientSendLimitController.GRADIENT_MODE, controllerMode)) {
+            this.controller = new GradientSendLimitController(DEFAULT_MAX_RATE);
+        } else {
+            this.controller = new RateStepSendLimitController();
+        }
+        LOGGER.info("send limit controller: {}", controller.getClass().getSimpleName());
     }
 
-    public void release(boolean success) {
-        checker.statistic(success);
+    public boolean failBreak() {
+        return checker.failBreak();
     }
 
-    public void reset() {
-        checker.reset();
-        permits = DEFAULT_MIN_RATE;
-        LOGGER.info("reset rate to default permits: {}", permits);
-        this.changeRateWithLog(permits);
+    /**
+     * break the sending even though the sent cases are healthy, such as the case status can't be persisted
+     */
+    public void breakSending() {
+        checker.forceBreak = true;
     }
 
-    private synchronized void tryReduceRate() {
-        LOGGER.info("try reduce rate , permits: {}", this.permits);
-        if (this.permits <= DEFAULT_MIN_RATE) {
-            return;
+    /**
+     * @return false if the case is not allowed to send, the caller should leave it and don't release for it.
+     * the failed acquiring is counted as a failure of sending, so a stalled target breaks the plan finally.
+     */
+    public boolean acquire() {
+        if (controller.acquire()) {
+            return true;
         }
-        this.changeRateWithLog(this.permits--);
+        checker.statistic(false);
+        return false;
     }
 
-    private synchronized void tryIncreaseRate() {
-        if (this.permits >= sendMaxRate) {
-            return;
-        }
-        this.changeRateWithLog(this.permits++);
+    public void release(boolean success) {
+        release(success, -1L);
     }
 
-    private void changeRateWithLog(double newPermitsPerSecond) {
-        double beforeValue = this.rateLimiter.getRate();
-        this.rateLimiter.setRate(newPermitsPerSecond);
-        LOGGER.info("send rate permits: {} -> {} (per second)", beforeValue, newPermitsPerSecond);
+    /**
+     * @param rttMillis the elapsed millis of sending the case, used to adapt the pace of sending
+     */
+    public void release(boolean success, long rttMillis) {
+        checker.statistic(success);
+        controller.release(success, rttMillis);
     }
 
+    public void reset() {
+        checker.reset();
+        controller.reset();
+    }
 
     public void setSendMaxRate(int replaySendMaxQps) {
-        sendMaxRate = replaySendMaxQps > 0 ? replaySendMaxQps : DEFAULT_MAX_RATE;
+        controller.setMaxRate(replaySendMaxQps > 0 ? replaySendMaxQps : DEFAULT_MAX_RATE);
     }
 
     /**
@@ -82,17 +84,13 @@ public final class SendSemaphoreLimiter {
     private final class ReplayHealthy {
         private final static int SUCCESS_COUNT_TO_BALANCE_NO_ERROR = 20;
         private final static int CONTINUOUS_FAIL_TOTAL = 2 * SUCCESS_COUNT_TO_BALANCE_NO_ERROR;
-        private final static int SUCCESS_COUNT_TO_BALANCE_WITH_ERROR = 5 * SUCCESS_COUNT_TO_BALANCE_NO_ERROR;
         private final static double ERROR_BREAK_RATE = 0.1;
-        private volatile boolean hasError;
-        private final AtomicInteger continuousSuccessCounter = new AtomicInteger();
         private final AtomicInteger failCounter = new AtomicInteger();
         private final AtomicInteger continuousFailCounter = new AtomicInteger();
-        private volatile int checkCount = SUCCESS_COUNT_TO_BALANCE_NO_ERROR;
+        private volatile boolean forceBreak;
 
         private void statistic(boolean success) {
             if (success) {
-                continuousSuccessCounter.incrementAndGet();
                 if (continuousFailCounter.get() < CONTINUOUS_FAIL_TOTAL) {
                     // reset to zero else pin down
                     continuousFailCounter.set(0);
@@ -100,34 +98,16 @@ public final class SendSemaphoreLimiter {
                 return;
             }
             continuousFailCounter.incrementAndGet();
-            continuousSuccessCounter.set(0);
-            hasError = true;
             failCounter.incrementAndGet();
         }
 
         private boolean failBreak() {
-            return continuousFailCounter.get() > CONTINUOUS_FAIL_TOTAL ||
+            return forceBreak || continuousFailCounter.get() > CONTINUOUS_FAIL_TOTAL ||
                     (totalTasks > 0 && (failCounter.doubleValue() / totalTasks) > ERROR_BREAK_RATE);
         }
 
         private void reset() {
-            continuousSuccessCounter.set(0);
             continuousFailCounter.set(0);
-            checkCount = SUCCESS_COUNT_TO_BALANCE_NO_ERROR;
-        }
-
-        private void tryChangeRate() {
-            if (hasError) {
-                tryReduceRate();
-                hasError = false;
-                checkCount = SUCCESS_COUNT_TO_BALANCE_WITH_ERROR;
-                return;
-            }
-            if (continuousSuccessCounter.get() > checkCount) {
-                tryIncreaseRate();
-                continuousSuccessCounter.set(0);
-                checkCount = SUCCESS_COUNT_TO_BALANCE_NO_ERROR;
-            }
         }
     }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.arextest.schedule.comparer;
 
 import com.arextest.common.cache.CacheProvider;
+import com.arextest.diff.model.CompareOptions;
+import com.arextest.model.mock.MockCategoryType;
 import com.arextest.schedule.client.HttpWepServiceApiClient;
 import com.arextest.schedule.common.CommonConstant;
 import com.arextest.schedule.model.ReplayActionItem;
@@ -11,6 +13,8 @@ import com.arextest.schedule.model.config.CompareListSortConfig;
 import com.arextest.schedule.model.config.CompareReferenceConfig;
 import com.arextest.schedule.model.config.ReplayComparisonConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
@@ -20,6 +24,7 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -29,7 +34,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by wang_yc on 2021/10/14
@@ -37,6 +45,8 @@ import java.util.Set;
 @Slf4j
 @Component
 public final class CompareConfigService {
+    private static final long COMPARE_CONFIG_EXPIRE_SECONDS = 7200L;
+    private static final List<String> IGNORE_IN_DATABASE_MOCKER = Collections.singletonList("body");
     @Resource
     private HttpWepServiceApiClient httpWepServiceApiClient;
     @Resource
@@ -54,6 +64,28 @@ public final class CompareConfigService {
     @Resource
     private ObjectMapper objectMapper;
 
+    @Value("${arex.schedule.compare.config.localCacheSize:1000}")
+    private long localCacheSize;
+    /**
+     * the config is fixed for the whole plan, the redis is the fallback for the plan resumed on other instances.
+     */
+    private Cache<String, ReplayComparisonConfig> localConfigCache;
+
+    /**
+     * the options of each category are built once for the loaded config, and shared by all its comparisons.
+     * the config is the weak key, so that the entries are released with the expired config.
+     */
+    private final Cache<ReplayComparisonConfig, CategoryCompareOptions> compareOptionsCache =
+            CacheBuilder.newBuilder().weakKeys().build();
+
+    @PostConstruct
+    void initLocalConfigCache() {
+        this.localConfigCache = CacheBuilder.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfterWrite(COMPARE_CONFIG_EXPIRE_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
     public void preload(ReplayPlan plan) {
         Map<String, ReplayComparisonConfig> operationCompareConfig = new HashMap<>();
 
@@ -69,7 +101,8 @@ public final class CompareConfigService {
             String redisKey = key(actionItem.getId());
             String json = objectToJsonString(config);
             redisCacheProvider.put(redisKey.getBytes(StandardCharsets.UTF_8),
-                    7200L, json.getBytes(StandardCharsets.UTF_8));
+                    COMPARE_CONFIG_EXPIRE_SECONDS, json.getBytes(StandardCharsets.UTF_8));
+            localConfigCache.put(actionItem.getId(), config);
             LOGGER.info("prepare load compare config, action id:{} ,result: {}", actionItem.getId(), json);
         }
     }
@@ -240,12 +273,38 @@ public final class CompareConfigService {
     }
 
 
+    private final static class CategoryCompareOptions {
+        private final ReplayComparisonConfig compareConfig;
+        private final Map<String, CompareOptions> categoryOptionsMap = new ConcurrentHashMap<>();
+        private volatile CompareOptions nullCategoryOptions;
+
+        private CategoryCompareOptions(ReplayComparisonConfig compareConfig) {
+            this.compareConfig = compareConfig;
+        }
+
+        private CompareOptions get(String category) {
+            if (category != null) {
+                return categoryOptionsMap.computeIfAbsent(category, key -> buildCompareOptions(key, compareConfig));
+            }
+            CompareOptions options = nullCategoryOptions;
+            if (options == null) {
+                options = buildCompareOptions(null, compareConfig);
+                nullCategoryOptions = options;
+            }
+            return options;
+        }
+    }
+
     @Data
     private final static class GenericResponseType<T> {
         private List<T> body;
     }
 
     public ReplayComparisonConfig loadConfig(ReplayActionItem actionItem) {
+        ReplayComparisonConfig cached = localConfigCache.getIfPresent(actionItem.getId());
+        if (cached != null) {
+            return cached;
+        }
         try {
             String redisKey = key(actionItem.getId());
             byte[] json = redisCacheProvider.get(redisKey.getBytes(StandardCharsets.UTF_8));
@@ -256,6 +315,7 @@ public final class CompareConfigService {
             if (config == null) {
                 return newEmptyComparisonConfig();
             }
+            localConfigCache.put(actionItem.getId(), config);
             return config;
         } catch (Throwable throwable) {
             LOGGER.error(throwable.getMessage(), throwable);
@@ -263,6 +323,41 @@ public final class CompareConfigService {
         return newEmptyComparisonConfig();
     }
 
+    /**
+     * the returned options is shared by the comparisons of the same config and category, it should not be changed.
+     */
+    public CompareOptions loadCompareOptions(String category, ReplayComparisonConfig compareConfig) {
+        return compareOptionsCache.asMap().computeIfAbsent(compareConfig, CategoryCompareOptions::new).get(category);
+    }
+
+    private static CompareOptions buildCompareOptions(String category, ReplayComparisonConfig compareConfig) {
+        CompareOptions options = new CompareOptions();
+        options.putCategoryType(category);
+        // todo: the switch of "sqlBodyParse" and "onlyCompareCoincidentColumn"
+        //  need get from ReplayComparisonConfig
+        options.putSqlBodyParse(true);
+        options.putOnlyCompareCoincidentColumn(true);
+        options.putExclusions(compareConfig.getExclusionList());
+        options.putInclusions(compareConfig.getInclusionList());
+        options.putListSortConfig(compareConfig.getListSortMap());
+        options.putReferenceConfig(compareConfig.getReferenceMap());
+        options.putDecompressConfig(compareConfig.getDecompressConfig());
+
+        if (Objects.equals(category, MockCategoryType.DATABASE.getName())) {
+            options.putExclusions(IGNORE_IN_DATABASE_MOCKER);
+        }
+        return options;
+    }
+
+    public void invalidate(ReplayPlan plan) {
+        if (CollectionUtils.isEmpty(plan.getReplayActionItemList())) {
+            return;
+        }
+        for (ReplayActionItem actionItem : plan.getReplayActionItemList()) {
+            localConfigCache.invalidate(actionItem.getId());
+        }
+    }
+
     private <T> T byteToObject(byte[] bytes, Class<T> tClass) {
         try {
             return objectMapper.readValue(bytes, tClass);
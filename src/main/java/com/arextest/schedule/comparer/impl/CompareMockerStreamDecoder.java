@@ -0,0 +1,155 @@
+package com.arextest.schedule.comparer.impl;
+
+import com.arextest.model.mock.AREXMocker;
+import com.arextest.model.mock.MockCategoryType;
+import com.arextest.model.mock.Mocker.Target;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Decode the base64 text of a zstd compressed mocker by streams, from the text to the json tokens,
+ * without the intermediate byte arrays of the decoded and decompressed values.
+ * <p>
+ * Only the fields used by {@link PrepareCompareItemBuilder} are kept, the body not compared by the category
+ * is skipped if the category has been read before it.
+ *
+ * @since 2023/4/19
+ */
+@Slf4j
+@Component
+final class CompareMockerStreamDecoder {
+    private static final String CATEGORY_TYPE = "categoryType";
+    private static final String OPERATION_NAME = "operationName";
+    private static final String TARGET_REQUEST = "targetRequest";
+    private static final String TARGET_RESPONSE = "targetResponse";
+    private static final String BODY = "body";
+    private static final String ATTRIBUTES = "attributes";
+    private static final TypeReference<Map<String, Object>> ATTRIBUTES_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    /**
+     * @return null if the text is empty
+     * @throws IOException if it's not a compressed mocker
+     */
+    AREXMocker decode(String base64) throws IOException {
+        if (StringUtils.isEmpty(base64)) {
+            return null;
+        }
+        InputStream decodedStream = Base64.getDecoder().wrap(new AsciiStringInputStream(base64));
+        try (JsonParser parser = objectMapper.getFactory().createParser(new ZstdInputStream(decodedStream))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            AREXMocker mocker = new AREXMocker();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if (valueToken == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (fieldName) {
+                    case CATEGORY_TYPE:
+                        mocker.setCategoryType(parser.readValueAs(MockCategoryType.class));
+                        break;
+                    case OPERATION_NAME:
+                        mocker.setOperationName(parser.getText());
+                        break;
+                    case TARGET_REQUEST:
+                        mocker.setTargetRequest(readTarget(parser, requestBodyUsed(mocker.getCategoryType()), true));
+                        break;
+                    case TARGET_RESPONSE:
+                        mocker.setTargetResponse(readTarget(parser, responseBodyUsed(mocker.getCategoryType()), false));
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            return mocker.getCategoryType() == null ? null : mocker;
+        }
+    }
+
+    private boolean requestBodyUsed(MockCategoryType categoryType) {
+        return categoryType == null || !categoryType.isEntryPoint();
+    }
+
+    private boolean responseBodyUsed(MockCategoryType categoryType) {
+        return categoryType == null || categoryType.isEntryPoint();
+    }
+
+    private Target readTarget(JsonParser parser, boolean bodyUsed, boolean attributesUsed) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        Target target = new Target();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            if (valueToken == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (bodyUsed && BODY.equals(fieldName)) {
+                target.setBody(parser.getText());
+            } else if (attributesUsed && ATTRIBUTES.equals(fieldName)) {
+                target.setAttributes(parser.readValueAs(ATTRIBUTES_TYPE));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return target;
+    }
+
+    /**
+     * the base64 alphabet is ascii, so the chars are read as bytes without encoding the text
+     */
+    private static final class AsciiStringInputStream extends InputStream {
+        private final String text;
+        private int position;
+
+        private AsciiStringInputStream(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read() {
+            return position < text.length() ? text.charAt(position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int remaining = text.length() - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = Math.min(length, remaining);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) text.charAt(position++);
+            }
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return text.length() - position;
+        }
+    }
+}
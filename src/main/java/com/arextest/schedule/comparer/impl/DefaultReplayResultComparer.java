@@ -5,9 +5,8 @@ import com.arextest.diff.model.CompareOptions;
 import com.arextest.diff.model.CompareResult;
 import com.arextest.diff.model.enumeration.DiffResultCode;
 import com.arextest.diff.sdk.CompareSDK;
-import com.arextest.model.mock.MockCategoryType;
 import com.arextest.schedule.comparer.*;
-import com.arextest.schedule.dao.mongodb.ReplayActionCaseItemRepository;
+import com.arextest.schedule.dao.mongodb.ReplayCaseStatusBuffer;
 import com.arextest.schedule.mdc.MDCTracer;
 import com.arextest.schedule.model.*;
 import com.arextest.schedule.model.config.ReplayComparisonConfig;
@@ -17,6 +16,7 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -30,13 +30,11 @@ public class DefaultReplayResultComparer implements ReplayResultComparer {
     private final PrepareCompareSourceRemoteLoader sourceRemoteLoader;
     private final ProgressTracer progressTracer;
     private final ComparisonWriter comparisonOutputWriter;
-    private final ReplayActionCaseItemRepository caseItemRepository;
+    private final ReplayCaseStatusBuffer caseStatusBuffer;
     private static final int INDEX_NOT_FOUND = -1;
     private static final CompareSDK COMPARE_INSTANCE = new CompareSDK();
     private final ConsoleLogService consoleLogService;
 
-    private static List<String> ignoreInDataBaseMocker = Collections.singletonList("body");
-
     static {
         COMPARE_INSTANCE.getGlobalOptions().putNameToLower(true).putNullEqualsEmpty(true);
     }
@@ -54,7 +52,7 @@ public class DefaultReplayResultComparer implements ReplayResultComparer {
                 if (!useReplayId) {
                     return comparisonOutputWriter.writeQmqCompareResult(caseItem);
                 }
-                caseItemRepository.updateCompareStatus(caseItem.getId(), CompareProcessStatusType.ERROR.getValue());
+                caseStatusBuffer.updateCompareStatus(caseItem.getId(), CompareProcessStatusType.ERROR.getValue());
                 comparisonOutputWriter.writeIncomparable(caseItem, CaseSendStatusType.REPLAY_RESULT_NOT_FOUND.name());
                 caseItem.setSendStatus(CaseSendStatusType.REPLAY_RESULT_NOT_FOUND.getValue());
                 consoleLogService.staticsFailDetailReasonEvent(caseItem, FailReasonType.OTHER.getValue(), LogType.STATICS_FAIL_REASON.getValue());
@@ -78,7 +76,7 @@ public class DefaultReplayResultComparer implements ReplayResultComparer {
             }
             return write;
         } catch (Throwable throwable) {
-            caseItemRepository.updateCompareStatus(caseItem.getId(), CompareProcessStatusType.ERROR.getValue());
+            caseStatusBuffer.updateCompareStatus(caseItem.getId(), CompareProcessStatusType.ERROR.getValue());
             comparisonOutputWriter.writeIncomparable(caseItem, throwable.getMessage());
             caseItem.setSendErrorMessage(truncateMessage(throwable.getMessage()));
             consoleLogService.staticsFailDetailReasonEvent(caseItem, FailReasonType.OTHER.getValue(), LogType.STATICS_FAIL_REASON.getValue());
@@ -87,7 +85,7 @@ public class DefaultReplayResultComparer implements ReplayResultComparer {
             // don't send again
             return true;
         } finally {
-            caseItemRepository.updateCompareStatus(caseItem.getId(), CompareProcessStatusType.PASS.getValue());
+            caseStatusBuffer.updateCompareStatus(caseItem.getId(), CompareProcessStatusType.PASS.getValue());
             progressTracer.finishOne(caseItem);
             consoleLogService.onConsoleLogEvent(System.currentTimeMillis() - beginTime, LogType.COMPARE.getValue(), null, caseItem.getParent());
             MDCTracer.clear();
@@ -177,7 +175,7 @@ public class DefaultReplayResultComparer implements ReplayResultComparer {
 
     private CompareResult compareProcess(String category, String record, String result,
                                          ReplayComparisonConfig compareConfig) {
-        CompareOptions options = buildCompareRequest(category, compareConfig);
+        CompareOptions options = compareConfigService.loadCompareOptions(category, compareConfig);
         try {
             return COMPARE_INSTANCE.compare(record, result, options);
         } catch (Throwable e) {
@@ -197,10 +195,10 @@ public class DefaultReplayResultComparer implements ReplayResultComparer {
 
         if (StringUtils.isNotBlank(sourceResultId)) {
 
-            List<CategoryComparisonHolder> sourceResponse = sourceRemoteLoader.getReplayResult(recordId,
-                    sourceResultId);
-            List<CategoryComparisonHolder> targetResponse = sourceRemoteLoader.getReplayResult(recordId,
-                    targetResultId);
+            Pair<List<CategoryComparisonHolder>, List<CategoryComparisonHolder>> responsePair =
+                    sourceRemoteLoader.getReplayResultPair(recordId, sourceResultId, targetResultId);
+            List<CategoryComparisonHolder> sourceResponse = responsePair.getLeft();
+            List<CategoryComparisonHolder> targetResponse = responsePair.getRight();
             if (CollectionUtils.isEmpty(sourceResponse) || CollectionUtils.isEmpty(targetResponse)) {
                 LOGGER.warn("replay recordId:{} invalid response,source replayId:{} size:{},target replayId:{} size:{}",
                         recordId, sourceResultId, sourceResponse.size(), targetResultId, targetResponse.size());
@@ -297,23 +295,5 @@ public class DefaultReplayResultComparer implements ReplayResultComparer {
         return compareConfigService.loadConfig(actionItem);
     }
 
-    private CompareOptions buildCompareRequest(String category, ReplayComparisonConfig compareConfig) {
-        CompareOptions options = new CompareOptions();
-        options.putCategoryType(category);
-        // todo: the switch of "sqlBodyParse" and "onlyCompareCoincidentColumn"
-        //  need get from ReplayComparisonConfig
-        options.putSqlBodyParse(true);
-        options.putOnlyCompareCoincidentColumn(true);
-        options.putExclusions(compareConfig.getExclusionList());
-        options.putInclusions(compareConfig.getInclusionList());
-        options.putListSortConfig(compareConfig.getListSortMap());
-        options.putReferenceConfig(compareConfig.getReferenceMap());
-        options.putDecompressConfig(compareConfig.getDecompressConfig());
-
-        if (Objects.equals(category, MockCategoryType.DATABASE.getName())) {
-            options.putExclusions(ignoreInDataBaseMocker);
-        }
-        return options;
-    }
 
 }
\ No newline at end of file
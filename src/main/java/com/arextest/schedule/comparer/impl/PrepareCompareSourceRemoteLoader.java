@@ -13,6 +13,7 @@ import com.arextest.schedule.client.HttpWepServiceApiClient;
 import com.arextest.schedule.comparer.CompareItem;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -21,6 +22,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 @Slf4j
@@ -34,19 +38,73 @@ public final class PrepareCompareSourceRemoteLoader {
     private ZstdJacksonSerializer zstdJacksonSerializer;
     @Resource
     private PrepareCompareItemBuilder prepareCompareItemBuilder;
+    @Resource
+    private CompareMockerStreamDecoder compareMockerStreamDecoder;
+    @Resource
+    private ExecutorService compareLoadExecutorService;
+    @Value("${arex.schedule.compare.loadTimeoutMillis:20000}")
+    private long loadTimeoutMillis;
+    @Resource
+    private ReplayResultBatchQueryLoader replayResultBatchQueryLoader;
 
     public List<CategoryComparisonHolder> getReplayResult(String replayId, String resultId) {
         QueryReplayResultResponseType responseType = remoteLoad(replayId, resultId);
         return decodeResult(responseType);
     }
 
+    /**
+     * load the replay results of source and target concurrently within a shared timeout,
+     * both of them are empty if either one failed.
+     */
+    public Pair<List<CategoryComparisonHolder>, List<CategoryComparisonHolder>> getReplayResultPair(
+            String replayId, String sourceResultId, String targetResultId) {
+        CompletableFuture<List<CategoryComparisonHolder>> sourceFuture =
+                CompletableFuture.supplyAsync(() -> getReplayResult(replayId, sourceResultId), compareLoadExecutorService);
+        CompletableFuture<List<CategoryComparisonHolder>> targetFuture =
+                CompletableFuture.supplyAsync(() -> getReplayResult(replayId, targetResultId), compareLoadExecutorService);
+        final long deadline = System.currentTimeMillis() + loadTimeoutMillis;
+        try {
+            List<CategoryComparisonHolder> sourceResult = sourceFuture.get(loadTimeoutMillis, TimeUnit.MILLISECONDS);
+            long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+            List<CategoryComparisonHolder> targetResult = targetFuture.get(remaining, TimeUnit.MILLISECONDS);
+            return Pair.of(sourceResult, targetResult);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("load replay result pair interrupted, replayId:{}", replayId);
+        } catch (Throwable throwable) {
+            LOGGER.error("load replay result pair error:{}, replayId:{} ,source replayId:{} ,target replayId:{}",
+                    throwable.getMessage(), replayId, sourceResultId, targetResultId, throwable);
+        }
+        sourceFuture.cancel(true);
+        targetFuture.cancel(true);
+        return Pair.of(Collections.emptyList(), Collections.emptyList());
+    }
+
     private QueryReplayResultResponseType remoteLoad(String replayId, String resultId) {
         QueryReplayResultRequestType resultRequest = new QueryReplayResultRequestType();
         resultRequest.setRecordId(replayId);
         resultRequest.setReplayResultId(resultId);
+        if (replayResultBatchQueryLoader.isEnabled()) {
+            QueryReplayResultResponseType batchResponse = batchLoad(resultRequest);
+            if (batchResponse != null) {
+                return batchResponse;
+            }
+        }
         return httpWepServiceApiClient.jsonPost(replayResultUrl, resultRequest, QueryReplayResultResponseType.class);
     }
 
+    private QueryReplayResultResponseType batchLoad(QueryReplayResultRequestType resultRequest) {
+        try {
+            return replayResultBatchQueryLoader.load(resultRequest).get(loadTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable throwable) {
+            LOGGER.warn("batch load replay result error:{}, replayId:{}", throwable.getMessage(),
+                    resultRequest.getRecordId());
+        }
+        return null;
+    }
+
     private List<CategoryComparisonHolder> decodeResult(QueryReplayResultResponseType replayResultResponseType) {
         if (replayResultResponseType == null) {
             return Collections.emptyList();
@@ -85,6 +143,18 @@ public final class PrepareCompareSourceRemoteLoader {
         return decodedListResult;
     }
 
+    /**
+     * fall back to decode the whole mocker if the streaming decode failed
+     */
+    private AREXMocker streamDecode(String base64) {
+        try {
+            return compareMockerStreamDecoder.decode(base64);
+        } catch (Throwable throwable) {
+            LOGGER.warn("stream decode compare mocker error: {}, decode it as a whole", throwable.getMessage());
+        }
+        return zstdJacksonSerializer.deserialize(base64, AREXMocker.class);
+    }
+
     public boolean checkDecodeType(MockCategoryType type) {
         if (Objects.equals(type, MockCategoryType.Q_MESSAGE_CONSUMER)) {
             return true;
@@ -99,7 +169,7 @@ public final class PrepareCompareSourceRemoteLoader {
         List<CompareItem> decodedResult = new ArrayList<>(base64List.size());
         for (int i = 0; i < base64List.size(); i++) {
             String base64 = base64List.get(i);
-            AREXMocker source = zstdJacksonSerializer.deserialize(base64, AREXMocker.class);
+            AREXMocker source = streamDecode(base64);
             if (source == null) {
                 continue;
             }
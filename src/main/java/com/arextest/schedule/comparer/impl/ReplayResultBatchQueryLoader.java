@@ -0,0 +1,173 @@
+package com.arextest.schedule.comparer.impl;
+
+import com.arextest.model.replay.QueryReplayResultRequestType;
+import com.arextest.model.replay.QueryReplayResultResponseType;
+import com.arextest.schedule.client.HttpWepServiceApiClient;
+import com.arextest.schedule.model.BatchQueryReplayResultRequestType;
+import com.arextest.schedule.model.BatchQueryReplayResultResponseType;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the replay result queries of the comparing cases, and sends them by one request to storage
+ * when the batch size reached or the window elapsed.
+ * <p>
+ * It's enabled by {@code arex.storage.replayResult.batch.url}, the batch is disabled for a while
+ * if the storage doesn't respond it, and the queries of the batch are completed with null
+ * so that the callers fall back to query one by one.
+ *
+ * @since 2023/4/16
+ */
+@Slf4j
+@Component
+final class ReplayResultBatchQueryLoader {
+    private static final long UNSUPPORTED_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    @Value("${arex.storage.replayResult.batch.url:}")
+    private String batchReplayResultUrl;
+    @Value("${arex.schedule.compare.batchQuery.maxSize:32}")
+    private int maxBatchSize;
+    @Value("${arex.schedule.compare.batchQuery.windowMillis:10}")
+    private long windowMillis;
+    @Value("${arex.schedule.compare.batchQuery.queueSize:2000}")
+    private int pendingQueueSize;
+    @Resource
+    private HttpWepServiceApiClient httpWepServiceApiClient;
+    @Resource
+    private ExecutorService compareBatchQueryExecutorService;
+
+    private BlockingQueue<PendingQuery> pendingQueue;
+    private volatile long unsupportedUntil;
+    private ExecutorService dispatchExecutorService;
+
+    @PostConstruct
+    void start() {
+        pendingQueue = new LinkedBlockingQueue<>(Math.max(1, pendingQueueSize));
+        if (StringUtils.isBlank(batchReplayResultUrl)) {
+            return;
+        }
+        dispatchExecutorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("replay-result-batch-%d")
+                .setDaemon(true)
+                .build());
+        dispatchExecutorService.execute(this::dispatchLoop);
+        LOGGER.info("replay result batch query enabled, max size: {} ,window millis: {}", maxBatchSize, windowMillis);
+    }
+
+    boolean isEnabled() {
+        return dispatchExecutorService != null && System.currentTimeMillis() >= unsupportedUntil;
+    }
+
+    /**
+     * the future is completed with null if the batch failed or the pending queue is full,
+     * the caller should query it alone.
+     */
+    CompletableFuture<QueryReplayResultResponseType> load(QueryReplayResultRequestType request) {
+        PendingQuery pendingQuery = new PendingQuery(request);
+        if (!pendingQueue.offer(pendingQuery)) {
+            pendingQuery.future.complete(null);
+        }
+        return pendingQuery.future;
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                PendingQuery first = pendingQueue.take();
+                List<PendingQuery> batchList = new ArrayList<>(maxBatchSize);
+                batchList.add(first);
+                long deadline = System.currentTimeMillis() + windowMillis;
+                while (batchList.size() < maxBatchSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    PendingQuery next = remaining > 0 ? pendingQueue.poll(remaining, TimeUnit.MILLISECONDS) :
+                            pendingQueue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batchList.add(next);
+                }
+                submitBatchLoad(batchList);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable throwable) {
+                LOGGER.error("dispatch replay result batch query error: {}", throwable.getMessage(), throwable);
+            }
+        }
+    }
+
+    private void submitBatchLoad(List<PendingQuery> batchList) {
+        try {
+            compareBatchQueryExecutorService.execute(() -> batchLoad(batchList));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("replay result batch query rejected, fall back to single query, size: {}", batchList.size());
+            completeAll(batchList, null);
+        }
+    }
+
+    private void batchLoad(List<PendingQuery> batchList) {
+        List<QueryReplayResultResponseType> responseList = null;
+        try {
+            List<QueryReplayResultRequestType> requestList = new ArrayList<>(batchList.size());
+            for (PendingQuery pendingQuery : batchList) {
+                requestList.add(pendingQuery.request);
+            }
+            BatchQueryReplayResultRequestType batchRequest = new BatchQueryReplayResultRequestType();
+            batchRequest.setRequestList(requestList);
+            BatchQueryReplayResultResponseType batchResponse = httpWepServiceApiClient.jsonPost(batchReplayResultUrl,
+                    batchRequest, BatchQueryReplayResultResponseType.class);
+            if (batchResponse != null && batchResponse.getResponseList() != null &&
+                    batchResponse.getResponseList().size() == batchList.size()) {
+                responseList = batchResponse.getResponseList();
+            } else {
+                unsupportedUntil = System.currentTimeMillis() + UNSUPPORTED_RETRY_MILLIS;
+                LOGGER.warn("replay result batch query unsupported, fall back to single query, size: {}",
+                        batchList.size());
+            }
+        } catch (Throwable throwable) {
+            LOGGER.error("replay result batch query error: {}, size: {}", throwable.getMessage(), batchList.size(),
+                    throwable);
+        }
+        completeAll(batchList, responseList);
+    }
+
+    private void completeAll(List<PendingQuery> batchList, List<QueryReplayResultResponseType> responseList) {
+        for (int i = 0; i < batchList.size(); i++) {
+            batchList.get(i).future.complete(responseList == null ? null : responseList.get(i));
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (dispatchExecutorService != null) {
+            dispatchExecutorService.shutdownNow();
+        }
+        PendingQuery pendingQuery;
+        while ((pendingQuery = pendingQueue.poll()) != null) {
+            pendingQuery.future.complete(null);
+        }
+    }
+
+    private static final class PendingQuery {
+        private final QueryReplayResultRequestType request;
+        private final CompletableFuture<QueryReplayResultResponseType> future = new CompletableFuture<>();
+
+        private PendingQuery(QueryReplayResultRequestType request) {
+            this.request = request;
+        }
+    }
+}
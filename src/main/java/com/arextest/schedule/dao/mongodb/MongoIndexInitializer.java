@@ -0,0 +1,91 @@
+package com.arextest.schedule.dao.mongodb;
+
+import com.arextest.schedule.model.dao.mongodb.ReplayPlanCollection;
+import com.arextest.schedule.model.dao.mongodb.ReplayPlanItemCollection;
+import com.arextest.schedule.model.dao.mongodb.ReplayRunDetailsCollection;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Ensure the indexes of the queries after the application ready, an existing index with the same name is kept as it is.
+ * The indexes are ensured by a separate thread and built in background, so the startup never waits for them,
+ * a failed one is logged only.
+ *
+ * @since 2023/4/18
+ */
+@Slf4j
+@Component
+final class MongoIndexInitializer implements RepositoryField {
+    private static final String PLAN_ITEM_ID = "planItemId";
+    private static final String SEND_STATUS = "sendStatus";
+    private static final String PLAN_ID = "planId";
+    private static final String APP_ID = "appId";
+    private static final String REPLAY_STATUS = "replayStatus";
+    private static final String PLAN_FINISH_TIME = "planFinishTime";
+    private static final String PLAN_CREATE_TIME = "planCreateTime";
+
+    @Resource
+    private MongoTemplate mongoTemplate;
+    @Value("${arex.schedule.mongo.ensureIndexes:true}")
+    private boolean ensureIndexes;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!ensureIndexes) {
+            return;
+        }
+        ExecutorService executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("mongo-index-init-%d")
+                .setDaemon(true)
+                .build());
+        executorService.execute(this::ensureIndexes);
+        executorService.shutdown();
+    }
+
+    private void ensureIndexes() {
+        // waitingSendList: the keyset of the waiting cases of an action
+        ensureIndex(ReplayRunDetailsCollection.class, new Index()
+                .on(PLAN_ITEM_ID, Sort.Direction.ASC)
+                .on(SEND_STATUS, Sort.Direction.ASC)
+                .on(DASH_ID, Sort.Direction.ASC)
+                .named("planItemId_1_sendStatus_1__id_1"));
+        // lastOne: the latest case of an action
+        ensureIndex(ReplayRunDetailsCollection.class, new Index()
+                .on(PLAN_ITEM_ID, Sort.Direction.ASC)
+                .on(DASH_ID, Sort.Direction.DESC)
+                .named("planItemId_1__id_-1"));
+        ensureIndex(ReplayPlanItemCollection.class, new Index()
+                .on(PLAN_ID, Sort.Direction.ASC)
+                .named("planId_1"));
+        ensureIndex(ReplayPlanItemCollection.class, new Index()
+                .on(APP_ID, Sort.Direction.ASC)
+                .on(REPLAY_STATUS, Sort.Direction.ASC)
+                .named("appId_1_replayStatus_1"));
+        // timeoutPlanList: the unfinished plans created in a range
+        ensureIndex(ReplayPlanCollection.class, new Index()
+                .on(PLAN_FINISH_TIME, Sort.Direction.ASC)
+                .on(PLAN_CREATE_TIME, Sort.Direction.ASC)
+                .named("planFinishTime_1_planCreateTime_1"));
+    }
+
+    private void ensureIndex(Class<?> collectionClass, Index index) {
+        try {
+            String indexName = mongoTemplate.indexOps(collectionClass).ensureIndex(index.background());
+            LOGGER.info("ensure index {} of {}", indexName, collectionClass.getSimpleName());
+        } catch (Throwable throwable) {
+            LOGGER.error("ensure index error: {} ,collection: {} ,index: {}", throwable.getMessage(),
+                    collectionClass.getSimpleName(), index.getIndexKeys(), throwable);
+        }
+    }
+}
@@ -1,27 +1,43 @@
 package com.arextest.schedule.dao.mongodb;
 
+import com.arextest.model.mock.Mocker.Target;
 import com.arextest.schedule.dao.RepositoryWriter;
 import com.arextest.schedule.dao.mongodb.util.MongoHelper;
 import com.arextest.schedule.model.CaseSendStatusType;
 import com.arextest.schedule.model.CompareProcessStatusType;
+import com.arextest.schedule.model.ReplayActionCaseHandle;
 import com.arextest.schedule.model.ReplayActionCaseItem;
 import com.arextest.schedule.model.converter.ReplayRunDetailsConverter;
 import com.arextest.schedule.model.dao.mongodb.ReplayRunDetailsCollection;
+import com.arextest.schedule.model.dao.mongodb.ReplayRunDetailsEncodedCollection;
+import com.arextest.schedule.serialization.ZstdBinarySerializer;
+import com.arextest.schedule.serialization.ZstdCompressor;
+import com.google.common.collect.Lists;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Created by rchen9 on 2022/8/19.
  */
+@Slf4j
 @Repository
 public class ReplayActionCaseItemRepository implements RepositoryWriter<ReplayActionCaseItem>, RepositoryField {
 
@@ -30,31 +46,132 @@ public class ReplayActionCaseItemRepository implements RepositoryWriter<ReplayAc
 
     private static final String PLAN_ITEM_ID = "planItemId";
     private static final String SEND_STATUS = "sendStatus";
-    private static final String REPLAY_DEPENDENCE = "replayDependence";
     private static final String SOURCE_RESULT_ID = "sourceResultId";
     private static final String TARGET_RESULT_ID = "targetResultId";
     private static final String COMPARE_STATUS = "compareStatus";
+    private static final String RECORD_TIME = "recordTime";
+    private static final String RECORD_ID = "recordId";
+    private static final String[] HANDLE_FIELDS = {PLAN_ITEM_ID, RECORD_ID, SEND_STATUS, COMPARE_STATUS, RECORD_TIME};
+
+    @Value("${arex.schedule.mongo.bulkInsertSize:500}")
+    private int bulkInsertSize;
 
     @Override
     public boolean save(ReplayActionCaseItem replayActionCaseItem) {
         ReplayRunDetailsCollection replayRunDetailsCollection = ReplayRunDetailsConverter.INSTANCE.daoFromDto(replayActionCaseItem);
-        ReplayRunDetailsCollection insert = mongoTemplate.insert(replayRunDetailsCollection);
+        ReplayRunDetailsCollection insert = ZstdCompressor.withCategory(replayRunDetailsCollection.getCaseType(),
+                () -> mongoTemplate.insert(replayRunDetailsCollection));
         if (insert.getId() != null) {
             replayActionCaseItem.setId(insert.getId());
         }
         return insert.getId() != null;
     }
 
-    public List<ReplayActionCaseItem> waitingSendList(String planItemId, int pageSize) {
+    /**
+     * insert by unordered bulk writes, a failed document doesn't stop the others of the same batch.
+     * the ids are assigned before writing, so that each inserted item could be back-filled.
+     */
+    @Override
+    public boolean save(List<ReplayActionCaseItem> caseItemList) {
+        if (CollectionUtils.isEmpty(caseItemList)) {
+            return false;
+        }
+        boolean allInserted = true;
+        for (List<ReplayActionCaseItem> batchList : Lists.partition(caseItemList, Math.max(1, bulkInsertSize))) {
+            allInserted &= bulkInsert(batchList);
+        }
+        return allInserted;
+    }
+
+    private boolean bulkInsert(List<ReplayActionCaseItem> batchList) {
+        List<ReplayRunDetailsCollection> collectionList = new ArrayList<>(batchList.size());
+        for (ReplayActionCaseItem caseItem : batchList) {
+            ReplayRunDetailsCollection replayRunDetailsCollection = ReplayRunDetailsConverter.INSTANCE.daoFromDto(caseItem);
+            replayRunDetailsCollection.setId(new ObjectId().toHexString());
+            collectionList.add(replayRunDetailsCollection);
+        }
+        Set<Integer> failedIndexes = new HashSet<>();
+        try {
+            BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                    ReplayRunDetailsCollection.class);
+            // the document is converted at adding, the target request is compressed by the dictionary of its category
+            for (ReplayRunDetailsCollection replayRunDetailsCollection : collectionList) {
+                ZstdCompressor.withCategory(replayRunDetailsCollection.getCaseType(),
+                        () -> bulkOperations.insert(replayRunDetailsCollection));
+            }
+            bulkOperations.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError writeError : e.getErrors()) {
+                failedIndexes.add(writeError.getIndex());
+            }
+            LOGGER.error("bulk insert replay case failed size: {} of {}, first error: {}", failedIndexes.size(),
+                    batchList.size(), e.getMessage(), e);
+        }
+        for (int i = 0; i < batchList.size(); i++) {
+            if (!failedIndexes.contains(i)) {
+                batchList.get(i).setId(collectionList.get(i).getId());
+            }
+        }
+        return failedIndexes.isEmpty();
+    }
+
+    /**
+     * page by the keyset of id, the next page starts after the last id of the previous page,
+     * so that the index of planItemId,sendStatus,_id serves both the filter and the sort.
+     *
+     * @param lastSeenId the last id of the previous page, null for the first page
+     */
+    public List<ReplayActionCaseItem> waitingSendList(String planItemId, int pageSize, String lastSeenId) {
+        return keysetPageList(planItemId, pageSize, lastSeenId,
+                Criteria.where(SEND_STATUS).is(CaseSendStatusType.WAIT_HANDLING.getValue()));
+    }
+
+    /**
+     * the cases sent but the comparison not finished, such as queued to compare when the process stopped.
+     * paged by the keyset of id as {@link #waitingSendList(String, int, String)}
+     */
+    public List<ReplayActionCaseItem> comparePendingList(String planItemId, int pageSize, String lastSeenId) {
+        return keysetPageList(planItemId, pageSize, lastSeenId,
+                Criteria.where(SEND_STATUS).is(CaseSendStatusType.SUCCESS.getValue()),
+                Criteria.where(COMPARE_STATUS).is(CompareProcessStatusType.WAIT_HANDLING.getValue()));
+    }
+
+    /**
+     * @param statusCriteria the status filters of the cases within the plan item
+     */
+    private List<ReplayActionCaseItem> keysetPageList(String planItemId, int pageSize, String lastSeenId,
+                                                      Criteria... statusCriteria) {
         Query query = Query.query(Criteria.where(PLAN_ITEM_ID).is(planItemId));
-        query.addCriteria(Criteria.where(SEND_STATUS).is(CaseSendStatusType.WAIT_HANDLING.getValue()));
+        for (Criteria criteria : statusCriteria) {
+            query.addCriteria(criteria);
+        }
+        if (lastSeenId != null) {
+            query.addCriteria(Criteria.where(DASH_ID).gt(ObjectId.isValid(lastSeenId) ? new ObjectId(lastSeenId) :
+                    lastSeenId));
+        }
         query.limit(pageSize);
         query.with(Sort.by(
-                Sort.Order.asc(DASH_ID),
-                Sort.Order.asc(REPLAY_DEPENDENCE)
+                Sort.Order.asc(DASH_ID)
         ));
-        List<ReplayRunDetailsCollection> replayRunDetailsCollections = mongoTemplate.find(query, ReplayRunDetailsCollection.class);
-        return replayRunDetailsCollections.stream().map(ReplayRunDetailsConverter.INSTANCE::dtoFromDao).collect(Collectors.toList());
+        List<ReplayRunDetailsEncodedCollection> encodedCollections = mongoTemplate.find(query,
+                ReplayRunDetailsEncodedCollection.class);
+        List<ReplayActionCaseItem> caseItemList = new ArrayList<>(encodedCollections.size());
+        for (ReplayRunDetailsEncodedCollection encodedCollection : encodedCollections) {
+            caseItemList.add(toLazyCaseItem(encodedCollection));
+        }
+        return caseItemList;
+    }
+
+    /**
+     * the target request is decoded at the first use, the case skipped by sending never decodes it
+     */
+    private ReplayActionCaseItem toLazyCaseItem(ReplayRunDetailsEncodedCollection encodedCollection) {
+        ReplayActionCaseItem caseItem = ReplayRunDetailsConverter.INSTANCE.dtoFromEncodedDao(encodedCollection);
+        final Object storedTarget = encodedCollection.getTargetRequest();
+        if (storedTarget != null) {
+            caseItem.setTargetRequestLoader(() -> ZstdBinarySerializer.deserializeStored(storedTarget, Target.class));
+        }
+        return caseItem;
     }
 
     public boolean updateSendResult(ReplayActionCaseItem replayActionCaseItem) {
@@ -69,6 +186,24 @@ public class ReplayActionCaseItemRepository implements RepositoryWriter<ReplayAc
         return updateResult.getModifiedCount() > 0;
     }
 
+    void bulkUpdateStatus(List<ReplayCaseStatusBuffer.PendingStatus> pendingList) {
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                ReplayRunDetailsCollection.class);
+        for (ReplayCaseStatusBuffer.PendingStatus pending : pendingList) {
+            Update update = MongoHelper.getUpdate();
+            if (pending.getSendStatus() != null) {
+                update.set(SEND_STATUS, pending.getSendStatus());
+                update.set(SOURCE_RESULT_ID, pending.getSourceResultId());
+                update.set(TARGET_RESULT_ID, pending.getTargetResultId());
+            }
+            if (pending.getCompareStatus() != null) {
+                update.set(COMPARE_STATUS, pending.getCompareStatus());
+            }
+            bulkOperations.updateOne(Query.query(Criteria.where(DASH_ID).is(pending.getId())), update);
+        }
+        bulkOperations.execute();
+    }
+
     public boolean updateCompareStatus(String id, int comparedStatus) {
         Query query = Query.query(Criteria.where(DASH_ID).is(id));
         Update update = MongoHelper.getUpdate();
@@ -77,7 +212,10 @@ public class ReplayActionCaseItemRepository implements RepositoryWriter<ReplayAc
         return updateResult.getModifiedCount() > 0;
     }
 
-    public ReplayActionCaseItem lastOne(String planItemId) {
+    /**
+     * @return the handle of latest case not finished, the request is not read
+     */
+    public ReplayActionCaseHandle lastOne(String planItemId) {
         Query query = Query.query(Criteria.where(PLAN_ITEM_ID).is(planItemId));
 
         query.addCriteria(
@@ -89,12 +227,13 @@ public class ReplayActionCaseItemRepository implements RepositoryWriter<ReplayAc
                         )
                 )
         );
+        query.fields().include(HANDLE_FIELDS);
         query.limit(1);
         query.with(Sort.by(
                 Sort.Order.desc(DASH_ID)
         ));
         ReplayRunDetailsCollection replayRunDetailsCollections = mongoTemplate.findOne(query, ReplayRunDetailsCollection.class);
-        return ReplayRunDetailsConverter.INSTANCE.dtoFromDao(replayRunDetailsCollections);
+        return ReplayRunDetailsConverter.INSTANCE.handleFromDao(replayRunDetailsCollections);
     }
 
 }
\ No newline at end of file
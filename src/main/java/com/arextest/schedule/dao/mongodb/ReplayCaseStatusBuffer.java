@@ -0,0 +1,231 @@
+package com.arextest.schedule.dao.mongodb;
+
+import com.arextest.schedule.dao.mongodb.util.MongoHelper;
+import com.arextest.schedule.model.ReplayActionCaseItem;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The write-behind buffer of the send and compare status of replay cases.
+ * <p>
+ * The updates of the same case are coalesced, the last one wins, and written by unordered bulk writes
+ * when the buffer reaches the flush size or the flush interval elapsed.
+ * Anyone querying the case status should call {@link #flushWithRetry()} before and stop if it returns false,
+ * such as paging the waiting send cases, finishing or resuming a plan.
+ * <p>
+ * The producers are blocked while the pending updates reach the max size, until they are flushed.
+ *
+ * @since 2023/4/14
+ */
+@Slf4j
+@Component
+public class ReplayCaseStatusBuffer {
+    @Resource
+    private ReplayActionCaseItemRepository replayActionCaseItemRepository;
+    @Value("${arex.schedule.status.flushSize:500}")
+    private int flushSize;
+    @Value("${arex.schedule.status.flushIntervalMillis:1000}")
+    private long flushIntervalMillis;
+    @Value("${arex.schedule.status.maxPendingSize:20000}")
+    private int maxPendingSize;
+    private static final int FLUSH_RETRY_TIMES = 3;
+    private static final long FLUSH_RETRY_BACKOFF_MILLIS = 500L;
+    private static final long CAPACITY_WAIT_MILLIS = 1000L;
+
+    private final Map<String, PendingStatus> pendingStatusMap = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final Object capacityLock = new Object();
+    private final AtomicBoolean flushSubmitted = new AtomicBoolean();
+    private ScheduledExecutorService flushExecutorService;
+
+    @PostConstruct
+    void start() {
+        flushExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("replay-status-flush-%d")
+                .setDaemon(true)
+                .build());
+        flushExecutorService.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void updateSendResult(ReplayActionCaseItem caseItem) {
+        MongoHelper.assertNull("update parameter is null", caseItem.getSourceResultId(),
+                caseItem.getTargetResultId());
+        awaitCapacity();
+        pendingStatusMap.compute(caseItem.getId(), (id, pending) -> {
+            PendingStatus status = pending == null ? new PendingStatus(id) : pending;
+            status.sendStatus = caseItem.getSendStatus();
+            status.sourceResultId = caseItem.getSourceResultId();
+            status.targetResultId = caseItem.getTargetResultId();
+            return status;
+        });
+        flushIfFull();
+    }
+
+    public void updateCompareStatus(String id, int comparedStatus) {
+        awaitCapacity();
+        pendingStatusMap.compute(id, (key, pending) -> {
+            PendingStatus status = pending == null ? new PendingStatus(key) : pending;
+            status.compareStatus = comparedStatus;
+            return status;
+        });
+        flushIfFull();
+    }
+
+    /**
+     * @return false if any update failed to write, the failed updates are kept for the next flush
+     */
+    public boolean flush() {
+        synchronized (flushLock) {
+            if (pendingStatusMap.isEmpty()) {
+                return true;
+            }
+            boolean allWritten = true;
+            List<PendingStatus> pendingList = new ArrayList<>(pendingStatusMap.size());
+            for (String id : pendingStatusMap.keySet()) {
+                PendingStatus pending = pendingStatusMap.remove(id);
+                if (pending != null) {
+                    pendingList.add(pending);
+                }
+            }
+            for (List<PendingStatus> batchList : Lists.partition(pendingList, Math.max(1, flushSize))) {
+                try {
+                    replayActionCaseItemRepository.bulkUpdateStatus(batchList);
+                } catch (Throwable throwable) {
+                    LOGGER.error("flush replay case status error: {}, size: {}", throwable.getMessage(),
+                            batchList.size(), throwable);
+                    restore(batchList);
+                    allWritten = false;
+                }
+            }
+            synchronized (capacityLock) {
+                capacityLock.notifyAll();
+            }
+            return allWritten;
+        }
+    }
+
+    /**
+     * @return false if the updates still can't be written after retried
+     */
+    public boolean flushWithRetry() {
+        for (int i = 0; i < FLUSH_RETRY_TIMES; i++) {
+            if (flush()) {
+                return true;
+            }
+            try {
+                Thread.sleep(FLUSH_RETRY_BACKOFF_MILLIS * (i + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return flush();
+    }
+
+    private void awaitCapacity() {
+        if (pendingStatusMap.size() < maxPendingSize) {
+            return;
+        }
+        synchronized (capacityLock) {
+            while (pendingStatusMap.size() >= maxPendingSize) {
+                submitFlush();
+                try {
+                    capacityLock.wait(CAPACITY_WAIT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * keep the failed updates for the next flush, unless a newer update of the same field arrived
+     */
+    private void restore(List<PendingStatus> failedList) {
+        for (PendingStatus failed : failedList) {
+            pendingStatusMap.merge(failed.getId(), failed, (newer, older) -> newer.fillAbsent(older));
+        }
+    }
+
+    private void flushIfFull() {
+        if (pendingStatusMap.size() < flushSize) {
+            return;
+        }
+        submitFlush();
+    }
+
+    private void submitFlush() {
+        if (!flushSubmitted.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushExecutorService.execute(() -> {
+                flushSubmitted.set(false);
+                flushQuietly();
+            });
+        } catch (RejectedExecutionException e) {
+            flushSubmitted.set(false);
+            LOGGER.warn("submit replay case status flush rejected: {}", e.getMessage());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Throwable throwable) {
+            LOGGER.error("flush replay case status error: {}", throwable.getMessage(), throwable);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (flushExecutorService != null) {
+            flushExecutorService.shutdown();
+        }
+        flushQuietly();
+    }
+
+    @Getter
+    static final class PendingStatus {
+        private final String id;
+        private Integer sendStatus;
+        private String sourceResultId;
+        private String targetResultId;
+        private Integer compareStatus;
+
+        private PendingStatus(String id) {
+            this.id = id;
+        }
+
+        private PendingStatus fillAbsent(PendingStatus older) {
+            if (sendStatus == null) {
+                sendStatus = older.sendStatus;
+                sourceResultId = older.sourceResultId;
+                targetResultId = older.targetResultId;
+            }
+            if (compareStatus == null) {
+                compareStatus = older.compareStatus;
+            }
+            return this;
+        }
+    }
+}
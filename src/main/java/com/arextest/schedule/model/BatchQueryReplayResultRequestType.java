@@ -0,0 +1,16 @@
+package com.arextest.schedule.model;
+
+import com.arextest.model.replay.QueryReplayResultRequestType;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The replay results of multiple cases queried at once, the responses are in the same order as the requests.
+ *
+ * @since 2023/4/16
+ */
+@Data
+public class BatchQueryReplayResultRequestType {
+    private List<QueryReplayResultRequestType> requestList;
+}
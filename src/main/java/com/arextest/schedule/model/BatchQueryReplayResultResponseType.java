@@ -0,0 +1,16 @@
+package com.arextest.schedule.model;
+
+import com.arextest.model.replay.QueryReplayResultResponseType;
+import com.arextest.model.response.ResponseStatusType;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @since 2023/4/16
+ */
+@Data
+public class BatchQueryReplayResultResponseType {
+    private ResponseStatusType responseStatusType;
+    private List<QueryReplayResultResponseType> responseList;
+}
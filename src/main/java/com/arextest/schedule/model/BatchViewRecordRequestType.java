@@ -0,0 +1,16 @@
+package com.arextest.schedule.model;
+
+import com.arextest.model.replay.ViewRecordRequestType;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The records of multiple cases viewed at once, the responses are in the same order as the requests.
+ *
+ * @since 2023/4/18
+ */
+@Data
+public class BatchViewRecordRequestType {
+    private List<ViewRecordRequestType> requestList;
+}
@@ -0,0 +1,16 @@
+package com.arextest.schedule.model;
+
+import com.arextest.model.replay.ViewRecordResponseType;
+import com.arextest.model.response.ResponseStatusType;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @since 2023/4/18
+ */
+@Data
+public class BatchViewRecordResponseType {
+    private ResponseStatusType responseStatusType;
+    private List<ViewRecordResponseType> responseList;
+}
@@ -13,6 +13,10 @@ public enum CaseSendStatusType {
     READY_DEPENDENCY_FAILED(101),
     REPLAY_CASE_NOT_FOUND(102),
     REPLAY_RESULT_NOT_FOUND(103),
+    /**
+     * the record of case might exist, but viewing it timeout
+     */
+    REPLAY_CASE_LOAD_TIMEOUT(104),
     ;
     @Getter
     final int value;
@@ -17,6 +17,14 @@ public enum LogType {
     COMPARE("compare", true),
     PUSH_COMPARE("pushCompare", true),
     STATICS_FAIL_REASON("staticsFailReason", false),
+    /**
+     * from the case submitted to send until the remote responses arrived
+     */
+    SEND_LAG("sendLag", true),
+    /**
+     * from the sent case queued to compare until a compare worker picks it up
+     */
+    COMPARE_LAG("compareLag", true),
     ;
 
     @Getter
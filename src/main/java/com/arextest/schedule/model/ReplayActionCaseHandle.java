@@ -0,0 +1,25 @@
+package com.arextest.schedule.model;
+
+import lombok.Data;
+
+/**
+ * The lightweight view of a saved case without the request, used by the paths only need the ids and status.
+ *
+ * @see ReplayActionCaseItem
+ * @since 2023/4/18
+ */
+@Data
+public class ReplayActionCaseHandle {
+    private String id;
+    private String planItemId;
+    private String recordId;
+    /**
+     * @see CaseSendStatusType
+     */
+    private int sendStatus;
+    /**
+     * @see CompareProcessStatusType
+     */
+    private int compareStatus;
+    private long recordTime;
+}
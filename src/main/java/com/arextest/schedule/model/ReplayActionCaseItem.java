@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.ToString;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * @author jmo
@@ -38,15 +39,35 @@ public class ReplayActionCaseItem {
     private long recordTime;
     @JsonIgnore
     private Target targetRequest;
+    /**
+     * decode the stored target request at the first use, set by the paging reads of sending
+     */
+    @JsonIgnore
+    private Supplier<Target> targetRequestLoader;
     @JsonIgnore
     private String messageId;
 
+    public Target getTargetRequest() {
+        Supplier<Target> loader = this.targetRequestLoader;
+        if (loader != null) {
+            this.targetRequest = loader.get();
+            this.targetRequestLoader = null;
+        }
+        return this.targetRequest;
+    }
+
+    public void setTargetRequest(Target targetRequest) {
+        this.targetRequest = targetRequest;
+        this.targetRequestLoader = null;
+    }
+
     public String replayDependency() {
         return requestAttribute(MockAttributeNames.CONFIG_BATCH_NO);
     }
 
     public String requestMessage() {
-        return this.targetRequest == null ? null : this.targetRequest.getBody();
+        Target target = getTargetRequest();
+        return target == null ? null : target.getBody();
     }
 
     public String consumeGroup() {
@@ -59,8 +80,9 @@ public class ReplayActionCaseItem {
 
     @SuppressWarnings("unchecked")
     public Map<String, String> requestHeaders() {
-        if (this.targetRequest != null) {
-            Object v = targetRequest.getAttribute(MockAttributeNames.HEADERS);
+        Target target = getTargetRequest();
+        if (target != null) {
+            Object v = target.getAttribute(MockAttributeNames.HEADERS);
             if (v instanceof Map) {
                 return (Map<String, String>) v;
             }
@@ -77,8 +99,9 @@ public class ReplayActionCaseItem {
     }
 
     private String requestAttribute(String name) {
-        if (this.targetRequest != null) {
-            return targetRequest.attributeAsString(name);
+        Target target = getTargetRequest();
+        if (target != null) {
+            return target.attributeAsString(name);
         }
         return null;
     }
@@ -51,6 +51,11 @@ public class ReplayPlan {
     @JsonIgnore
     private String caseRecordVersion;
     private int caseTotalCount;
+    /**
+     * the cases are still loading while sending, the total is not final and the plan can't be finished by it
+     */
+    @JsonIgnore
+    private volatile boolean caseLoading;
     /**
      * see {@link CaseSourceEnvType}
      */
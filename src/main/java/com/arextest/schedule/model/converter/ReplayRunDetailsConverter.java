@@ -1,7 +1,9 @@
 package com.arextest.schedule.model.converter;
 
+import com.arextest.schedule.model.ReplayActionCaseHandle;
 import com.arextest.schedule.model.ReplayActionCaseItem;
 import com.arextest.schedule.model.dao.mongodb.ReplayRunDetailsCollection;
+import com.arextest.schedule.model.dao.mongodb.ReplayRunDetailsEncodedCollection;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
@@ -15,8 +17,20 @@ public interface ReplayRunDetailsConverter {
 
     ReplayRunDetailsConverter INSTANCE = Mappers.getMapper(ReplayRunDetailsConverter.class);
 
+    @Mapping(target = "targetRequestLoader", ignore = true)
     ReplayActionCaseItem dtoFromDao(ReplayRunDetailsCollection dao);
 
+    /**
+     * the target request is left to the caller to decode
+     */
+    @Mappings({
+            @Mapping(target = "targetRequest", ignore = true),
+            @Mapping(target = "targetRequestLoader", ignore = true)
+    })
+    ReplayActionCaseItem dtoFromEncodedDao(ReplayRunDetailsEncodedCollection dao);
+
+    ReplayActionCaseHandle handleFromDao(ReplayRunDetailsCollection dao);
+
 
     @Mappings({
             @Mapping(target = "id", expression = "java(null)"),
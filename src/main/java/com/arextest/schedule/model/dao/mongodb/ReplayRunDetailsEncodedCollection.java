@@ -0,0 +1,30 @@
+package com.arextest.schedule.model.dao.mongodb;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * The same document as {@link ReplayRunDetailsCollection}, but the target request is read as it's stored,
+ * so that it's decoded only when used.
+ *
+ * @since 2023/4/18
+ */
+@Data
+@NoArgsConstructor
+@Document("ReplayRunDetails")
+public class ReplayRunDetailsEncodedCollection extends ModelBase {
+    private String planItemId;
+    private String operationId;
+    private String recordId;
+    private String targetResultId;
+    private String sourceResultId;
+    private int sendStatus;
+    private int compareStatus;
+    private String caseType;
+    private long recordTime;
+    /**
+     * the bson binary, or the base64 text written by the earlier versions
+     */
+    private Object targetRequest;
+}
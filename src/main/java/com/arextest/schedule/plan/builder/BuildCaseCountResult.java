@@ -0,0 +1,25 @@
+package com.arextest.schedule.plan.builder;
+
+import com.arextest.schedule.model.ReplayActionItem;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.collections4.CollectionUtils;
+
+import java.util.List;
+
+/**
+ * The case count of plan, and the actions failed or timeout to count, which are unknown rather than empty,
+ * they are skipped by the plan and reported to the creator.
+ *
+ * @since 2023/4/20
+ */
+@Getter
+@AllArgsConstructor
+public class BuildCaseCountResult {
+    private final int caseCount;
+    private final List<ReplayActionItem> uncountedActionList;
+
+    public boolean hasUncounted() {
+        return CollectionUtils.isNotEmpty(uncountedActionList);
+    }
+}
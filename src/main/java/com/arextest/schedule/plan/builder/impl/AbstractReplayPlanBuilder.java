@@ -1,5 +1,6 @@
 package com.arextest.schedule.plan.builder.impl;
 
+import com.arextest.schedule.mdc.AbstractTracedRunnable;
 import com.arextest.schedule.model.AppServiceDescriptor;
 import com.arextest.schedule.model.CaseSourceEnvType;
 import com.arextest.schedule.model.ReplayActionItem;
@@ -7,32 +8,51 @@ import com.arextest.schedule.model.deploy.DeploymentVersion;
 import com.arextest.schedule.model.deploy.ServiceInstance;
 import com.arextest.schedule.model.plan.BuildReplayPlanRequest;
 import com.arextest.schedule.plan.PlanContext;
+import com.arextest.schedule.plan.builder.BuildCaseCountResult;
 import com.arextest.schedule.plan.builder.BuildPlanValidateResult;
 import com.arextest.schedule.plan.builder.ReplayPlanBuilder;
 import com.arextest.schedule.service.DeployedEnvironmentService;
 import com.arextest.schedule.service.ReplayActionItemPreprocessService;
 import com.arextest.schedule.service.ReplayCaseRemoteLoadService;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.function.BiConsumer;
 
 /**
  * @author jmo
  * @since 2021/9/22
  */
+@Slf4j
 abstract class AbstractReplayPlanBuilder implements ReplayPlanBuilder {
     static final int APP_SUSPENDED_STATUS = -1;
     private final static String DEFAULT_PRO_SOURCE_ENV = "pro";
+    private final static int QUERY_CASE_COUNT_PENDING = -1;
     @Resource
     private DeployedEnvironmentService deployedEnvironmentService;
     @Resource
     private ReplayCaseRemoteLoadService replayCaseRemoteLoadService;
     @Resource
     private ReplayActionItemPreprocessService replayActionItemPreprocessService;
+    @Resource
+    private ExecutorService caseCountExecutorService;
+    @Value("${arex.schedule.plan.caseCount.parallelism:8}")
+    private int caseCountParallelism;
+    @Value("${arex.schedule.plan.caseCount.timeoutMillis:30000}")
+    private long caseCountTimeoutMillis;
 
 
     @Override
@@ -91,17 +111,75 @@ abstract class AbstractReplayPlanBuilder implements ReplayPlanBuilder {
         return replayActionItemList;
     }
 
+    /**
+     * the counts are queried concurrently within the deadline, the action failed or not counted in time
+     * is returned as uncounted, its count is unknown rather than empty.
+     */
     @Override
-    public int buildReplayCaseCount(List<ReplayActionItem> actionItemList, Integer caseCountLimit) {
+    public BuildCaseCountResult buildReplayCaseCount(List<ReplayActionItem> actionItemList, Integer caseCountLimit) {
+        final int actionSize = actionItemList.size();
+        final AtomicIntegerArray countArray = new AtomicIntegerArray(actionSize);
+        for (int i = 0; i < actionSize; i++) {
+            countArray.set(i, QUERY_CASE_COUNT_PENDING);
+        }
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final CountDownLatch countedLatch = new CountDownLatch(actionSize);
+        final AtomicBoolean expired = new AtomicBoolean();
+        final Runnable countWorker = new AbstractTracedRunnable() {
+            @Override
+            protected void doWithTracedRunning() {
+                int index;
+                while (!expired.get() && (index = nextIndex.getAndIncrement()) < actionSize) {
+                    try {
+                        countArray.set(index, queryCaseCount(actionItemList.get(index), caseCountLimit));
+                    } catch (Throwable throwable) {
+                        LOGGER.error("query case count error:{} ,action id:{}", throwable.getMessage(),
+                                actionItemList.get(index).getId(), throwable);
+                    } finally {
+                        countedLatch.countDown();
+                    }
+                }
+            }
+        };
+        int workers = Math.min(Math.max(1, caseCountParallelism), actionSize);
+        int submittedWorkers = 0;
+        for (int i = 0; i < workers; i++) {
+            try {
+                caseCountExecutorService.execute(countWorker);
+                submittedWorkers++;
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("query case count rejected, submitted workers: {} of {}", submittedWorkers, workers);
+                break;
+            }
+        }
+        try {
+            if (submittedWorkers == 0) {
+                LOGGER.error("query case count rejected, none of {} actions counted", actionSize);
+            } else if (!countedLatch.await(caseCountTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("query case count timeout, counted {} of {} actions", actionSize - countedLatch.getCount(),
+                        actionSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("query case count interrupted");
+        }
+        expired.set(true);
         int sum = 0;
         int actionCount;
-        for (int i = 0; i < actionItemList.size(); i++) {
+        List<ReplayActionItem> uncountedActionList = new ArrayList<>();
+        for (int i = 0; i < actionSize; i++) {
             ReplayActionItem actionItem = actionItemList.get(i);
-            actionCount = queryCaseCount(actionItem, caseCountLimit);
+            actionCount = countArray.get(i);
+            if (actionCount < 0) {
+                LOGGER.warn("query case count failed or unfinished in time, action id:{} ,operation:{}",
+                        actionItem.getId(), actionItem.getOperationName());
+                uncountedActionList.add(actionItem);
+                continue;
+            }
             actionItem.setReplayCaseCount(actionCount);
             sum += actionCount;
         }
-        return sum;
+        return new BuildCaseCountResult(sum, uncountedActionList);
     }
 
     abstract List<ReplayActionItem> getReplayActionList(BuildReplayPlanRequest request, PlanContext planContext);
@@ -1,6 +1,7 @@
 package com.arextest.schedule.progress;
 
 import com.arextest.schedule.model.ReplayActionCaseItem;
+import com.arextest.schedule.model.ReplayActionItem;
 import com.arextest.schedule.model.ReplayPlan;
 
 /**
@@ -10,6 +11,19 @@ import com.arextest.schedule.model.ReplayPlan;
 public interface ProgressTracer {
     void initTotal(ReplayPlan replayPlan);
 
+    /**
+     * init the case total of the plan only, the actions are initialized by {@link #initActionTotal}
+     */
+    void initPlanTotal(ReplayPlan replayPlan);
+
+    void initActionTotal(ReplayActionItem replayActionItem);
+
+    /**
+     * adjust the case total of the action initialized before, used when the initialized total was estimated.
+     * the action comparison finished is fired if nothing remaining after adjusted.
+     */
+    void adjustActionTotal(ReplayActionItem replayActionItem, int delta);
+
     void finishOne(ReplayActionCaseItem caseItem);
 
     double finishPercent(String planId);
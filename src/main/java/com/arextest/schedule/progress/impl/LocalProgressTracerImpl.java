@@ -0,0 +1,200 @@
+package com.arextest.schedule.progress.impl;
+
+import com.arextest.schedule.model.ReplayActionCaseItem;
+import com.arextest.schedule.model.ReplayActionItem;
+import com.arextest.schedule.model.ReplayPlan;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The finished cases are counted in memory and the counters are flushed to redis periodically,
+ * so that the compare threads don't wait for redis per case.
+ * <p>
+ * The action finished and plan finished are detected by the local counters, which are seeded from redis
+ * at the first finished case, and the counters are flushed before the events fired.
+ * The changes since the last flush are accumulated as deltas and added to redis by INCRBY/DECRBY,
+ * so the counting of the other instances is kept rather than overwritten.
+ * The redis counters might lag behind up to the flush interval.
+ *
+ * @since 2023/4/14
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "arex.schedule.progress.mode", havingValue = "local")
+final class LocalProgressTracerImpl extends RedisProgressTracerImpl {
+    private static final long IDLE_EVICT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    @Value("${arex.schedule.progress.flushIntervalMillis:1000}")
+    private long flushIntervalMillis;
+
+    private final Map<String, PlanProgress> planProgressMap = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flushExecutorService;
+
+    @PostConstruct
+    void start() {
+        flushExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("replay-progress-flush-%d")
+                .setDaemon(true)
+                .build());
+        flushExecutorService.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void initTotal(ReplayPlan replayPlan) {
+        PlanProgress planProgress = planProgressMap.remove(replayPlan.getId());
+        if (planProgress != null) {
+            flush(planProgress);
+        }
+        super.initTotal(replayPlan);
+    }
+
+    @Override
+    public void finishOne(ReplayActionCaseItem caseItem) {
+        ReplayActionItem replayActionItem = caseItem.getParent();
+        ReplayPlan replayPlan = replayActionItem.getParent();
+        String planId = replayPlan.getId();
+        try {
+            PlanProgress planProgress = planProgressMap.computeIfAbsent(planId, this::loadPlanProgress);
+            long actionRemaining = planProgress.actionRemainingMap.computeIfAbsent(replayActionItem.getId(),
+                    this::loadActionRemaining).decrementAndGet();
+            planProgress.actionDelta(replayActionItem.getId()).decrement();
+            long finished = planProgress.finished.incrementAndGet();
+            planProgress.finishedDelta.increment();
+            planProgress.lastUpdateTime = System.currentTimeMillis();
+            if (actionRemaining == 0) {
+                flush(planProgress);
+                progressEvent.onActionComparisonFinish(replayActionItem);
+            }
+            if (!replayPlan.isCaseLoading() && finished == replayPlan.getCaseTotalCount()) {
+                flush(planProgress);
+                planProgressMap.remove(planId, planProgress);
+                progressEvent.onReplayPlanFinish(replayPlan);
+            }
+        } catch (Throwable throwable) {
+            LOGGER.error("do finish one error: {} ,plan id: {} ,action id: {}", throwable.getMessage(), planId,
+                    replayActionItem.getId(), throwable);
+        }
+    }
+
+    @Override
+    public void adjustActionTotal(ReplayActionItem replayActionItem, int delta) {
+        String planId = replayActionItem.getParent().getId();
+        try {
+            PlanProgress planProgress = planProgressMap.computeIfAbsent(planId, this::loadPlanProgress);
+            long actionRemaining = planProgress.actionRemainingMap.computeIfAbsent(replayActionItem.getId(),
+                    this::loadActionRemaining).addAndGet(delta);
+            planProgress.actionDelta(replayActionItem.getId()).add(delta);
+            planProgress.lastUpdateTime = System.currentTimeMillis();
+            if (delta < 0 && actionRemaining == 0) {
+                flush(planProgress);
+                progressEvent.onActionComparisonFinish(replayActionItem);
+            }
+        } catch (Throwable throwable) {
+            LOGGER.error("adjust action total error: {} ,plan id: {} ,action id: {}", throwable.getMessage(), planId,
+                    replayActionItem.getId(), throwable);
+        }
+    }
+
+    private PlanProgress loadPlanProgress(String planId) {
+        return new PlanProgress(planId, readCounter(toPlanFinishKeyBytes(planId)));
+    }
+
+    private AtomicLong loadActionRemaining(String actionId) {
+        return new AtomicLong(readCounter(toPlanActionTotalKeyBytes(actionId)));
+    }
+
+    private long readCounter(byte[] key) {
+        byte[] bytes = redisCacheProvider.get(key);
+        if (bytes == null) {
+            return 0;
+        }
+        return NumberUtils.toLong(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private void flushAll() {
+        long now = System.currentTimeMillis();
+        for (PlanProgress planProgress : planProgressMap.values()) {
+            flush(planProgress);
+            if (now - planProgress.lastUpdateTime > IDLE_EVICT_MILLIS) {
+                planProgressMap.remove(planProgress.planId, planProgress);
+            }
+        }
+    }
+
+    /**
+     * the writes of the same plan are serialized, each delta is taken off only after it's added to redis,
+     * the failed ones and the concurrent changes are flushed next time.
+     */
+    private void flush(PlanProgress planProgress) {
+        synchronized (planProgress) {
+            boolean written = false;
+            try {
+                for (Map.Entry<String, LongAdder> entry : planProgress.actionDeltaMap.entrySet()) {
+                    written |= writeDelta(toPlanActionTotalKeyBytes(entry.getKey()), entry.getValue());
+                }
+                written |= writeDelta(toPlanFinishKeyBytes(planProgress.planId), planProgress.finishedDelta);
+            } catch (Throwable throwable) {
+                LOGGER.error("flush plan progress error: {} ,plan id: {}", throwable.getMessage(),
+                        planProgress.planId, throwable);
+            }
+            if (written) {
+                refreshUpdateTime(planProgress.planId);
+            }
+        }
+    }
+
+    private boolean writeDelta(byte[] key, LongAdder deltaAdder) {
+        long delta = deltaAdder.sum();
+        if (delta == 0) {
+            return false;
+        }
+        if (delta > 0) {
+            redisCacheProvider.incrValueBy(key, delta);
+        } else {
+            redisCacheProvider.decrValueBy(key, -delta);
+        }
+        deltaAdder.add(-delta);
+        return true;
+    }
+
+    @PreDestroy
+    void close() {
+        if (flushExecutorService != null) {
+            flushExecutorService.shutdown();
+        }
+        flushAll();
+    }
+
+    private static final class PlanProgress {
+        private final String planId;
+        private final AtomicLong finished;
+        private final LongAdder finishedDelta = new LongAdder();
+        private final Map<String, AtomicLong> actionRemainingMap = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> actionDeltaMap = new ConcurrentHashMap<>();
+        private volatile long lastUpdateTime = System.currentTimeMillis();
+
+        private PlanProgress(String planId, long finished) {
+            this.planId = planId;
+            this.finished = new AtomicLong(finished);
+        }
+
+        private LongAdder actionDelta(String actionId) {
+            return actionDeltaMap.computeIfAbsent(actionId, key -> new LongAdder());
+        }
+    }
+}
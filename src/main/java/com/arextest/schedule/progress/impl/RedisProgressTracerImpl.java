@@ -8,6 +8,7 @@ import com.arextest.schedule.progress.ProgressEvent;
 import com.arextest.schedule.progress.ProgressTracer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
@@ -22,33 +23,64 @@ import java.util.function.Supplier;
  */
 @Slf4j
 @Component
-final class RedisProgressTracerImpl implements ProgressTracer {
-    private static final long SEVEN_DAYS_EXPIRE = TimeUnit.DAYS.toSeconds(7);
+@ConditionalOnProperty(name = "arex.schedule.progress.mode", havingValue = "redis", matchIfMissing = true)
+class RedisProgressTracerImpl implements ProgressTracer {
+    static final long SEVEN_DAYS_EXPIRE = TimeUnit.DAYS.toSeconds(7);
     private static final byte[] PLAN_TOTAL_KEY = "plan_total".getBytes(StandardCharsets.UTF_8);
     private static final byte[] PLAN_ACTION_TOTAL_KEY = "plan_action_total".getBytes(StandardCharsets.UTF_8);
     private static final byte[] PLAN_FINISH_KEY = "plan_finish".getBytes(StandardCharsets.UTF_8);
     private static final byte[] PLAN_UPDATE_TIME_KEY = "plan_update_time".getBytes(StandardCharsets.UTF_8);
 
     @Resource
-    private ProgressEvent progressEvent;
+    ProgressEvent progressEvent;
     @Resource
-    private CacheProvider redisCacheProvider;
+    CacheProvider redisCacheProvider;
 
     @Override
     public void initTotal(ReplayPlan replayPlan) {
+        for (ReplayActionItem replayActionItem : replayPlan.getReplayActionItemList()) {
+            initActionTotal(replayActionItem);
+        }
+        initPlanTotal(replayPlan);
+    }
+
+    @Override
+    public void initPlanTotal(ReplayPlan replayPlan) {
         String planId = replayPlan.getId();
         int value = replayPlan.getCaseTotalCount();
         byte[] totalKey = toPlanTotalKeyBytes(planId);
         setupRedisNxWithExpire(totalKey, valueToBytes(value));
-        int actionCaseCount;
-        for (ReplayActionItem replayActionItem : replayPlan.getReplayActionItemList()) {
-            actionCaseCount = replayActionItem.getReplayCaseCount();
-            if (actionCaseCount > 0) {
-                setupRedisNxWithExpire(toPlanActionTotalKeyBytes(replayActionItem.getId()),
-                        String.valueOf(actionCaseCount).getBytes(StandardCharsets.UTF_8));
+        this.refreshUpdateTime(planId);
+    }
+
+    @Override
+    public void initActionTotal(ReplayActionItem replayActionItem) {
+        int actionCaseCount = replayActionItem.getReplayCaseCount();
+        if (actionCaseCount > 0) {
+            setupRedisNxWithExpire(toPlanActionTotalKeyBytes(replayActionItem.getId()),
+                    String.valueOf(actionCaseCount).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * the delta is applied by one INCRBY/DECRBY
+     */
+    @Override
+    public void adjustActionTotal(ReplayActionItem replayActionItem, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        String actionId = replayActionItem.getId();
+        byte[] totalKey = toPlanActionTotalKeyBytes(actionId);
+        try {
+            Long remaining = delta > 0 ? doWithRetry(() -> redisCacheProvider.incrValueBy(totalKey, delta)) :
+                    doWithRetry(() -> redisCacheProvider.decrValueBy(totalKey, -delta));
+            if (delta < 0 && remaining != null && remaining == 0) {
+                progressEvent.onActionComparisonFinish(replayActionItem);
             }
+        } catch (Throwable throwable) {
+            LOGGER.error("adjust action total error: {} ,action id: {}", throwable.getMessage(), actionId, throwable);
         }
-        this.refreshUpdateTime(planId);
     }
 
     private void setupRedisNxWithExpire(byte[] key, byte[] value) {
@@ -67,7 +99,7 @@ final class RedisProgressTracerImpl implements ProgressTracer {
         return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
     }
 
-    private byte[] toPlanActionTotalKeyBytes(String actionId) {
+    byte[] toPlanActionTotalKeyBytes(String actionId) {
         return allocateArray(PLAN_ACTION_TOTAL_KEY, actionId.getBytes(StandardCharsets.UTF_8));
     }
 
@@ -79,7 +111,7 @@ final class RedisProgressTracerImpl implements ProgressTracer {
         return allocateArray(PLAN_TOTAL_KEY, planId.getBytes(StandardCharsets.UTF_8));
     }
 
-    private byte[] toPlanFinishKeyBytes(String planId) {
+    byte[] toPlanFinishKeyBytes(String planId) {
         return allocateArray(PLAN_FINISH_KEY, planId.getBytes(StandardCharsets.UTF_8));
     }
 
@@ -100,7 +132,7 @@ final class RedisProgressTracerImpl implements ProgressTracer {
         String planId = replayPlan.getId();
         try {
             Long finished = doWithRetry(() -> redisCacheProvider.incrValue(toPlanFinishKeyBytes(planId)));
-            if (finished != null && finished == replayPlan.getCaseTotalCount()) {
+            if (finished != null && !replayPlan.isCaseLoading() && finished == replayPlan.getCaseTotalCount()) {
                 progressEvent.onReplayPlanFinish(replayPlan);
             }
         } catch (Throwable throwable) {
@@ -158,7 +190,7 @@ final class RedisProgressTracerImpl implements ProgressTracer {
         return ByteBuffer.wrap(bytes).getLong();
     }
 
-    private void refreshUpdateTime(String planId) {
+    void refreshUpdateTime(String planId) {
         long now = System.currentTimeMillis();
         try {
             redisCacheProvider.put(toPlanUpdateTimeKeyBytes(planId), SEVEN_DAYS_EXPIRE, valueToBytes(now));
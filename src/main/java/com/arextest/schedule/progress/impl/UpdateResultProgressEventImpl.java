@@ -1,6 +1,7 @@
 package com.arextest.schedule.progress.impl;
 
 import com.arextest.schedule.comparer.CompareConfigService;
+import com.arextest.schedule.dao.mongodb.ReplayCaseStatusBuffer;
 import com.arextest.schedule.dao.mongodb.ReplayPlanActionRepository;
 import com.arextest.schedule.dao.mongodb.ReplayPlanRepository;
 import com.arextest.schedule.model.ReplayActionItem;
@@ -29,6 +30,8 @@ final class UpdateResultProgressEventImpl implements ProgressEvent {
     private ReplayReportService replayReportService;
     @Resource
     private CompareConfigService compareConfigService;
+    @Resource
+    private ReplayCaseStatusBuffer replayCaseStatusBuffer;
 
     @Override
     public void onReplayPlanCreated(ReplayPlan replayPlan) {
@@ -44,16 +47,24 @@ final class UpdateResultProgressEventImpl implements ProgressEvent {
 
     @Override
     public void onReplayPlanFinish(ReplayPlan replayPlan, ReplayStatusType reason) {
-        replayPlan.setPlanFinishTime(new Date());
         String planId = replayPlan.getId();
+        if (!replayCaseStatusBuffer.flushWithRetry()) {
+            LOGGER.error("skip finish the plan when the case status unflushed, it would be resumed later, plan id:{}",
+                    planId);
+            return;
+        }
+        replayPlan.setPlanFinishTime(new Date());
+        replayReportService.flushCompareResults();
         boolean result = replayPlanRepository.finish(planId);
         LOGGER.info("update the replay plan finished, plan id:{} , result: {}", planId, result);
         replayReportService.pushPlanStatus(planId, reason);
+        compareConfigService.invalidate(replayPlan);
     }
 
     @Override
     public void onActionComparisonFinish(ReplayActionItem actionItem) {
         actionItem.setReplayFinishTime(new Date());
+        replayReportService.flushCompareResults();
         updateReplayActionStatus(actionItem, ReplayStatusType.FINISHED);
     }
 
@@ -1,6 +1,8 @@
 package com.arextest.schedule.resume;
 
+import com.arextest.schedule.common.CommonConstant;
 import com.arextest.schedule.dao.mongodb.ReplayActionCaseItemRepository;
+import com.arextest.schedule.dao.mongodb.ReplayCaseStatusBuffer;
 import com.arextest.schedule.dao.mongodb.ReplayPlanActionRepository;
 import com.arextest.schedule.dao.mongodb.ReplayPlanRepository;
 import com.arextest.schedule.mdc.MDCTracer;
@@ -14,6 +16,7 @@ import com.arextest.schedule.service.ConfigurationService;
 import com.arextest.schedule.service.DeployedEnvironmentService;
 import com.arextest.schedule.service.PlanConsumeService;
 import com.arextest.schedule.service.PlanProduceService;
+import com.arextest.schedule.service.ReplayCaseTransmitService;
 import com.arextest.schedule.utils.ReplayParentBinder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
@@ -37,6 +40,8 @@ public class SelfHealingInterrupted {
     @Resource
     private ReplayActionCaseItemRepository replayActionCaseItemRepository;
     @Resource
+    private ReplayCaseStatusBuffer replayCaseStatusBuffer;
+    @Resource
     private ConfigurationService configurationService;
     @Resource
     private ProgressEvent progressEvent;
@@ -50,6 +55,8 @@ public class SelfHealingInterrupted {
     private PlanContextCreator planContextCreator;
     @Resource
     private DeployedEnvironmentService deployedEnvironmentService;
+    @Resource
+    private ReplayCaseTransmitService replayCaseTransmitService;
 
     // #TODO There is a problem here, Date and Duration types are compared
     public void resumeTimeout(Duration offsetDuration, Duration maxDuration) {
@@ -93,10 +100,15 @@ public class SelfHealingInterrupted {
         if (schedule != null) {
             replayPlan.setReplaySendMaxQps(schedule.getSendMaxQps());
         }
+        if (!replayCaseStatusBuffer.flushWithRetry()) {
+            LOGGER.error("skip resume when the case status unflushed, plan id: {}", planId);
+            return;
+        }
         replayPlan.setReplayActionItemList(actionItems);
         doResumeOperationDescriptor(replayPlan);
         doResumeLastRecordTime(actionItems);
         ReplayParentBinder.setupReplayActionParent(actionItems, replayPlan);
+        doResumeComparePending(actionItems);
         LOGGER.info("try resume the plan running, plan id: {}", planId);
         planConsumeService.runAsyncConsume(replayPlan);
     }
@@ -133,13 +145,39 @@ public class SelfHealingInterrupted {
 
     private void doResumeLastRecordTime(List<ReplayActionItem> actionItems) {
         for (ReplayActionItem actionItem : actionItems) {
-            ReplayActionCaseItem lastCastItem = replayActionCaseItemRepository.lastOne(actionItem.getId());
+            ReplayActionCaseHandle lastCastItem = replayActionCaseItemRepository.lastOne(actionItem.getId());
             if (lastCastItem != null) {
                 actionItem.setLastRecordTime(lastCastItem.getRecordTime());
             }
         }
     }
 
+    /**
+     * the sent cases are persisted before compared, the comparison queued in the stopped process is lost,
+     * so they are compared again here, the waiting send cases are sent by the consuming as before.
+     */
+    private void doResumeComparePending(List<ReplayActionItem> actionItems) {
+        for (ReplayActionItem actionItem : actionItems) {
+            if (actionItem.finished()) {
+                continue;
+            }
+            String lastSeenId = null;
+            List<ReplayActionCaseItem> caseItemList;
+            while (true) {
+                caseItemList = replayActionCaseItemRepository.comparePendingList(actionItem.getId(),
+                        CommonConstant.MAX_PAGE_SIZE, lastSeenId);
+                if (CollectionUtils.isEmpty(caseItemList)) {
+                    break;
+                }
+                lastSeenId = caseItemList.get(caseItemList.size() - 1).getId();
+                ReplayParentBinder.setupCaseItemParent(caseItemList, actionItem);
+                LOGGER.info("resume compare pending cases size: {} ,action id: {}", caseItemList.size(),
+                        actionItem.getId());
+                replayCaseTransmitService.resumeCompare(caseItemList);
+            }
+        }
+    }
+
     private boolean isRunning(String planId, long timeoutMillis) {
         long now = System.currentTimeMillis();
         long lastUpdateTime = progressTracer.lastUpdateTime(planId);
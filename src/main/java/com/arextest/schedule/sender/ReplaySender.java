@@ -2,6 +2,8 @@ package com.arextest.schedule.sender;
 
 import com.arextest.schedule.model.ReplayActionCaseItem;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author jmo
  * @since 2021/9/16
@@ -18,6 +20,25 @@ public interface ReplaySender {
      */
     boolean send(ReplayActionCaseItem caseItem);
 
+    /**
+     * Indicate the instance could send the replay case without blocking the caller thread
+     */
+    default boolean isAsyncSupported() {
+        return false;
+    }
+
+    /**
+     * Try to send the replay case to remote target host without blocking the caller thread,
+     * the returned future completed when all the remote responses arrived,
+     * or completed exceptionally if {@link #isAsyncSupported()} is false.
+     */
+    default CompletableFuture<Boolean> sendAsync(ReplayActionCaseItem caseItem) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        future.completeExceptionally(new UnsupportedOperationException("async send unsupported by " +
+                getClass().getSimpleName()));
+        return future;
+    }
+
     /**
      * Try to send the request message to remote target host
      */
@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
 
 
 @Slf4j
@@ -25,6 +26,12 @@ abstract class AbstractReplaySender implements ReplaySender {
         }
     }
 
+    protected CompletableFuture<Void> beforeAsync(String recordId, int replayPlanType) {
+        if (StringUtils.isNotEmpty(recordId)) {
+            return mockCachePreLoader.fillMockSourceAsync(recordId, replayPlanType);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
 
     protected void after(ReplayActionCaseItem caseItem) {
         mockCachePreLoader.removeMockSource(caseItem.getRecordId());
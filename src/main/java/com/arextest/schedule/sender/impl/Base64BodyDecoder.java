@@ -0,0 +1,85 @@
+package com.arextest.schedule.sender.impl;
+
+import java.util.Arrays;
+
+/**
+ * The single pass base64 check of request bodies, same as the former pattern
+ * {@code ^([A-Za-z0-9+/]{4})*([A-Za-z0-9+/]{3}=|[A-Za-z0-9+/]{2}==)?$} without any backtracking,
+ * the valid body is decoded from the chars into an exactly sized array.
+ *
+ * @since 2023/4/20
+ */
+final class Base64BodyDecoder {
+    private static final int GROUP_CHARS = 4;
+    private static final int GROUP_BYTES = 3;
+    private static final char PADDING = '=';
+    private static final int[] DECODE_TABLE = new int[128];
+
+    static {
+        Arrays.fill(DECODE_TABLE, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE_TABLE[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private Base64BodyDecoder() {
+
+    }
+
+    static boolean isBase64(String text) {
+        int length = text.length();
+        if (length % GROUP_CHARS != 0) {
+            return false;
+        }
+        int dataLength = length - paddingLength(text);
+        for (int i = 0; i < dataLength; i++) {
+            if (decodeChar(text.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * the text should be checked by {@link #isBase64(String)} before
+     */
+    static byte[] decode(String text) {
+        int length = text.length();
+        int padding = paddingLength(text);
+        byte[] result = new byte[length / GROUP_CHARS * GROUP_BYTES - padding];
+        int dataLength = length - padding;
+        int fullGroupEnd = dataLength - dataLength % GROUP_CHARS;
+        int position = 0;
+        int i = 0;
+        while (i < fullGroupEnd) {
+            int bits = decodeChar(text.charAt(i++)) << 18 | decodeChar(text.charAt(i++)) << 12 |
+                    decodeChar(text.charAt(i++)) << 6 | decodeChar(text.charAt(i++));
+            result[position++] = (byte) (bits >> 16);
+            result[position++] = (byte) (bits >> 8);
+            result[position++] = (byte) bits;
+        }
+        if (padding == 1) {
+            int bits = decodeChar(text.charAt(i++)) << 18 | decodeChar(text.charAt(i++)) << 12 |
+                    decodeChar(text.charAt(i)) << 6;
+            result[position++] = (byte) (bits >> 16);
+            result[position] = (byte) (bits >> 8);
+        } else if (padding == 2) {
+            int bits = decodeChar(text.charAt(i++)) << 18 | decodeChar(text.charAt(i)) << 12;
+            result[position] = (byte) (bits >> 16);
+        }
+        return result;
+    }
+
+    private static int paddingLength(String text) {
+        int length = text.length();
+        if (length == 0 || text.charAt(length - 1) != PADDING) {
+            return 0;
+        }
+        return text.charAt(length - 2) == PADDING ? 2 : 1;
+    }
+
+    private static int decodeChar(char c) {
+        return c < DECODE_TABLE.length ? DECODE_TABLE[c] : -1;
+    }
+}
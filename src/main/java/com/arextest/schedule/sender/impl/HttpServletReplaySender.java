@@ -1,6 +1,7 @@
 package com.arextest.schedule.sender.impl;
 
 import com.arextest.model.mock.MockCategoryType;
+import com.arextest.schedule.client.AsyncHttpWepServiceApiClient;
 import com.arextest.schedule.client.HttpWepServiceApiClient;
 import com.arextest.schedule.common.CommonConstant;
 import com.arextest.schedule.model.LogType;
@@ -12,21 +13,25 @@ import com.arextest.schedule.sender.ReplaySendResult;
 import com.arextest.schedule.sender.ReplaySenderParameters;
 import com.arextest.schedule.sender.SenderParameters;
 import com.arextest.schedule.service.ConsoleLogService;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.arextest.schedule.common.CommonConstant.*;
 
@@ -37,12 +42,47 @@ final class HttpServletReplaySender extends AbstractReplaySender {
     @Resource
     private HttpWepServiceApiClient httpWepServiceApiClient;
     @Resource
-    private ObjectMapper objectMapper;
+    private AsyncHttpWepServiceApiClient asyncHttpWepServiceApiClient;
     @Resource
     private ConsoleLogService consoleLogService;
 
-    private static final String PATTERN_STRING = "^([A-Za-z0-9+/]{4})*([A-Za-z0-9+/]{3}=|[A-Za-z0-9+/]{2}==)?$";
-    private static final Pattern BASE_64_PATTERN = Pattern.compile(PATTERN_STRING);
+    @Value("${arex.schedule.send.response.mode:buffer}")
+    private String responseMode;
+    @Value("${arex.schedule.send.response.modeByApp:}")
+    private String responseModeByApp;
+
+    private static final int HTTP_ERROR_STATUS = 400;
+    private static final int RESPONSE_PREVIEW_BYTES = 1024;
+    private static final String DISCARD_RESPONSE_MODE = "discard";
+    private static final String APP_MODE_SEPARATOR = ",";
+    private static final String APP_MODE_VALUE_SEPARATOR = "=";
+    private final Map<String, String> appResponseModeMap = new HashMap<>();
+
+    @PostConstruct
+    void initResponseModes() {
+        if (StringUtils.isBlank(responseModeByApp)) {
+            return;
+        }
+        for (String appMode : StringUtils.split(responseModeByApp, APP_MODE_SEPARATOR)) {
+            int index = appMode.lastIndexOf(APP_MODE_VALUE_SEPARATOR);
+            if (index <= 0) {
+                LOGGER.warn("skip invalid response mode of app: {}", appMode);
+                continue;
+            }
+            appResponseModeMap.put(StringUtils.trim(appMode.substring(0, index)),
+                    StringUtils.trim(appMode.substring(index + 1)));
+        }
+        LOGGER.info("response mode: {} , app response modes: {}", responseMode, appResponseModeMap);
+    }
+
+    /**
+     * the response body is not used by replaying but the replay id header, it could be discarded for the apps
+     * responding large bodies
+     */
+    private boolean discardResponseBody(String appId) {
+        String mode = appId == null ? null : appResponseModeMap.get(appId);
+        return StringUtils.equalsIgnoreCase(DISCARD_RESPONSE_MODE, mode == null ? responseMode : mode);
+    }
 
     @Override
     public boolean isSupported(String category) {
@@ -83,7 +123,7 @@ final class HttpServletReplaySender extends AbstractReplaySender {
             return ReplaySendResult.failed("url is null or empty");
         }
         before(senderParameters.getRecordId(), BuildReplayPlanType.BY_APP_ID.getValue());
-        return doInvoke(senderParameters);
+        return doInvoke(prepareRequest(senderParameters), senderParameters.getUrl());
     }
 
 
@@ -100,11 +140,68 @@ final class HttpServletReplaySender extends AbstractReplaySender {
         if (instanceRunner == null) {
             return false;
         }
+        ReplaySendResult targetSendResult;
+        ReplaySenderParameters senderParameter = createSenderParameters(replayActionItem, caseItem, headers,
+                instanceRunner);
+        String messageId = consoleLogService.generateMessageIdEvent(headers, instanceRunner.getUrl(), LogType.DOSEND.getValue());
+        PreparedRequest request = prepareRequest(senderParameter);
+        long startTime = System.currentTimeMillis();
+        targetSendResult = this.doInvoke(request, instanceRunner.getUrl());
+        long timeUsed = System.currentTimeMillis() - startTime;
+        bindTargetSendResult(caseItem, messageId, timeUsed, sendType, targetSendResult);
+        instanceRunner = getServiceInstance(caseItem, replayActionItem.getSourceInstance());
+        if (instanceRunner == null) {
+            return targetSendResult.success();
+        }
+        // the sourceHost sending
+        ReplaySendResult sourceSendResult = this.doInvoke(request, instanceRunner.getUrl());
+        bindSourceSendResult(caseItem, targetSendResult, sourceSendResult);
+        return sourceSendResult.success() && targetSendResult.success();
+    }
+
+    private CompletableFuture<Boolean> doSendAsync(ReplayActionItem replayActionItem, ReplayActionCaseItem caseItem,
+                                                   Map<String, String> headers, String sendType) {
+        ServiceInstance instanceRunner = getServiceInstance(caseItem, replayActionItem.getTargetInstance());
+        if (instanceRunner == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        final ReplaySenderParameters senderParameter = createSenderParameters(replayActionItem, caseItem, headers,
+                instanceRunner);
+        final String messageId = consoleLogService.generateMessageIdEvent(headers, instanceRunner.getUrl(),
+                LogType.DOSEND.getValue());
+        final PreparedRequest request;
+        try {
+            request = prepareRequest(senderParameter);
+        } catch (Throwable throwable) {
+            LOGGER.error("prepare request of {} error: {}", senderParameter.getUrl(), throwable.getMessage(), throwable);
+            bindTargetSendResult(caseItem, messageId, 0, sendType,
+                    ReplaySendResult.failed(throwable.getMessage(), senderParameter.getUrl()));
+            return CompletableFuture.completedFuture(false);
+        }
+        final long startTime = System.currentTimeMillis();
+        return this.doInvokeAsync(request, instanceRunner.getUrl()).thenCompose(targetSendResult -> {
+            long timeUsed = System.currentTimeMillis() - startTime;
+            bindTargetSendResult(caseItem, messageId, timeUsed, sendType, targetSendResult);
+            ServiceInstance sourceInstance = getServiceInstance(caseItem, replayActionItem.getSourceInstance());
+            if (sourceInstance == null) {
+                return CompletableFuture.completedFuture(targetSendResult.success());
+            }
+            // the sourceHost sending
+            return this.doInvokeAsync(request, sourceInstance.getUrl()).thenApply(sourceSendResult -> {
+                bindSourceSendResult(caseItem, targetSendResult, sourceSendResult);
+                return sourceSendResult.success() && targetSendResult.success();
+            });
+        });
+    }
+
+    private ReplaySenderParameters createSenderParameters(ReplayActionItem replayActionItem,
+                                                          ReplayActionCaseItem caseItem,
+                                                          Map<String, String> headers,
+                                                          ServiceInstance instanceRunner) {
         String operationName = caseItem.requestPath();
         if (StringUtils.isEmpty(operationName)) {
             operationName = replayActionItem.getOperationName();
         }
-        ReplaySendResult targetSendResult;
         ReplaySenderParameters senderParameter = new ReplaySenderParameters();
         senderParameter.setAppId(replayActionItem.getAppId());
         senderParameter.setConsumeGroup(caseItem.consumeGroup());
@@ -116,26 +213,23 @@ final class HttpServletReplaySender extends AbstractReplaySender {
         senderParameter.setHeaders(headers);
         senderParameter.setMethod(caseItem.requestMethod());
         senderParameter.setRecordId(caseItem.getRecordId());
-        String messageId = consoleLogService.generateMessageIdEvent(headers, instanceRunner.getUrl(), LogType.DOSEND.getValue());
-        long startTime = System.currentTimeMillis();
-        targetSendResult = this.doInvoke(senderParameter);
-        long timeUsed = System.currentTimeMillis() - startTime;
+        return senderParameter;
+    }
+
+    private void bindTargetSendResult(ReplayActionCaseItem caseItem, String messageId, long timeUsed,
+                                      String sendType, ReplaySendResult targetSendResult) {
         caseItem.setMessageId(messageId);
         consoleLogService.consoleLogAndWriteEvent(timeUsed, LogType.DOSEND.getValue(), sendType, targetSendResult, caseItem);
         caseItem.setSendErrorMessage(targetSendResult.getRemark());
         caseItem.setTargetResultId(targetSendResult.getTraceId());
         caseItem.setSendStatus(targetSendResult.getStatusType().getValue());
-        instanceRunner = getServiceInstance(caseItem, replayActionItem.getSourceInstance());
-        if (instanceRunner == null) {
-            return targetSendResult.success();
-        }
-        // the sourceHost sending
-        senderParameter.setUrl(instanceRunner.getUrl());
-        ReplaySendResult sourceSendResult = this.doInvoke(senderParameter);
+    }
+
+    private void bindSourceSendResult(ReplayActionCaseItem caseItem, ReplaySendResult targetSendResult,
+                                      ReplaySendResult sourceSendResult) {
         caseItem.setSourceResultId(sourceSendResult.getTraceId());
         caseItem.setSendStatus(sourceSendResult.getStatusType().getValue());
         caseItem.setSendErrorMessage(targetSendResult.getRemark());
-        return sourceSendResult.success() && targetSendResult.success();
     }
 
     protected ServiceInstance getServiceInstance(ReplayActionCaseItem caseItem, List<ServiceInstance> serviceInstances) {
@@ -148,16 +242,34 @@ final class HttpServletReplaySender extends AbstractReplaySender {
 
     @Override
     public boolean send(ReplayActionCaseItem caseItem) {
-        Map<String, String> headers = newHeadersIfEmpty(caseItem.requestHeaders());
         ReplayActionItem replayActionItem = caseItem.getParent();
         before(caseItem.getRecordId(), replayActionItem.getParent().getReplayPlanType());
+        Map<String, String> headers = createReplayHeaders(caseItem);
+        return doSend(replayActionItem, caseItem, headers, QUERY_SEND);
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendAsync(ReplayActionCaseItem caseItem) {
+        final ReplayActionItem replayActionItem = caseItem.getParent();
+        final Map<String, String> headers = createReplayHeaders(caseItem);
+        return beforeAsync(caseItem.getRecordId(), replayActionItem.getParent().getReplayPlanType())
+                .thenCompose(ignored -> doSendAsync(replayActionItem, caseItem, headers, QUERY_SEND));
+    }
+
+    private Map<String, String> createReplayHeaders(ReplayActionCaseItem caseItem) {
+        Map<String, String> headers = newHeadersIfEmpty(caseItem.requestHeaders());
         headers.remove(CommonConstant.AREX_REPLAY_WARM_UP);
         headers.put(CommonConstant.AREX_RECORD_ID, caseItem.getRecordId());
-        String exclusionOperationConfig = replayActionItem.getExclusionOperationConfig();
+        String exclusionOperationConfig = caseItem.getParent().getExclusionOperationConfig();
         if (StringUtils.isNotEmpty(exclusionOperationConfig)) {
             headers.put(CommonConstant.X_AREX_EXCLUSION_OPERATIONS, exclusionOperationConfig);
         }
-        return doSend(replayActionItem, caseItem, headers, QUERY_SEND);
+        return headers;
     }
 
     private String contactUrl(String baseUrl, String operation) {
@@ -170,39 +282,87 @@ final class HttpServletReplaySender extends AbstractReplaySender {
         return result;
     }
 
-    private ReplaySendResult doInvoke(SenderParameters senderParameters) {
-        String method = senderParameters.getMethod();
-        HttpMethod httpMethod = HttpMethod.resolve(method);
-
-        if (httpMethod == null) {
-            return ReplaySendResult.failed("not found request method:" + method);
+    /**
+     * the headers and body are encoded once and shared by the sending to target and source instances
+     */
+    private PreparedRequest prepareRequest(SenderParameters senderParameters) {
+        PreparedRequest request = new PreparedRequest();
+        request.method = senderParameters.getMethod();
+        request.httpMethod = HttpMethod.resolve(request.method);
+        request.operation = senderParameters.getOperation();
+        request.discardResponseBody = discardResponseBody(senderParameters.getAppId());
+        if (request.httpMethod == null) {
+            return request;
         }
-
-        HttpHeaders httpHeaders = createRequestHeaders(senderParameters.getHeaders(), senderParameters.getFormat());
-        String requestMessage = senderParameters.getMessage();
-        String fullUrl =
-                contactUrl(senderParameters.getUrl(), senderParameters.getOperation());
-        Class<?> responseType = String.class;
-        final HttpEntity<?> httpEntity;
-        if (shouldApplyHttpBody(httpMethod)) {
-            Object decodeMessage = decode(requestMessage);
-            if (byte[].class == decodeMessage.getClass()) {
-                responseType = byte[].class;
+        request.headers = createRequestHeaders(senderParameters.getHeaders(), senderParameters.getFormat());
+        if (shouldApplyHttpBody(request.httpMethod)) {
+            String requestMessage = senderParameters.getMessage();
+            if (requestMessage == null) {
+                return request;
             }
-            httpEntity = new HttpEntity<>(decodeMessage, httpHeaders);
-        } else {
-            httpEntity = new HttpEntity<>(httpHeaders);
+            request.binaryBody = Base64BodyDecoder.isBase64(requestMessage);
+            request.body = request.binaryBody ? Base64BodyDecoder.decode(requestMessage) :
+                    requestMessage.getBytes(requestCharset(request.headers));
         }
-        final ResponseEntity<?> responseEntity;
+        return request;
+    }
+
+    private ReplaySendResult doInvoke(PreparedRequest request, String url) {
+        if (request.httpMethod == null) {
+            return ReplaySendResult.failed("not found request method:" + request.method);
+        }
+        String fullUrl = contactUrl(url, request.operation);
+        final HttpEntity<byte[]> httpEntity = new HttpEntity<>(request.body, request.headers);
+        final ResponseEntity<byte[]> responseEntity;
         try {
-            responseEntity = httpWepServiceApiClient.exchange(fullUrl, httpMethod, httpEntity, responseType);
+            responseEntity = request.discardResponseBody ?
+                    httpWepServiceApiClient.exchangeDiscardingBody(fullUrl, request.httpMethod, httpEntity,
+                            RESPONSE_PREVIEW_BYTES) :
+                    httpWepServiceApiClient.exchange(fullUrl, request.httpMethod, httpEntity, byte[].class);
         } catch (Throwable throwable) {
-            LOGGER.error("http {} , url: {} ,error: {} ,request: {}", method, fullUrl, throwable.getMessage(),
-                    httpEntity,
-                    throwable);
+            LOGGER.error("http {} , url: {} ,error: {} ,request header: {} ,body size: {}", request.method, fullUrl,
+                    throwable.getMessage(), request.headers, bodySize(request.body), throwable);
             return ReplaySendResult.failed(throwable.getMessage(), fullUrl);
         }
-        return fromHttpResult(httpHeaders, fullUrl, responseEntity);
+        if (responseEntity == null) {
+            return fromResult(request, fullUrl, null, null);
+        }
+        return fromResult(request, fullUrl, responseEntity.getHeaders(), responseEntity.getBody());
+    }
+
+    private CompletableFuture<ReplaySendResult> doInvokeAsync(PreparedRequest request, String url) {
+        if (request.httpMethod == null) {
+            return CompletableFuture.completedFuture(ReplaySendResult.failed("not found request method:" +
+                    request.method));
+        }
+        final String fullUrl = contactUrl(url, request.operation);
+        final CompletableFuture<ResponseEntity<byte[]>> responseFuture = request.discardResponseBody ?
+                asyncHttpWepServiceApiClient.exchangeDiscardingBody(fullUrl, request.httpMethod, request.headers,
+                        request.body, RESPONSE_PREVIEW_BYTES) :
+                asyncHttpWepServiceApiClient.exchange(fullUrl, request.httpMethod, request.headers, request.body);
+        return responseFuture.handle((responseEntity, throwable) -> {
+            if (throwable != null) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ?
+                        throwable.getCause() : throwable;
+                LOGGER.error("http {} , url: {} ,error: {}", request.method, fullUrl, cause.getMessage(), cause);
+                return ReplaySendResult.failed(cause.getMessage(), fullUrl);
+            }
+            if (responseEntity.getStatusCodeValue() >= HTTP_ERROR_STATUS) {
+                LOGGER.error("http {} , url: {} ,response status: {}", request.method, fullUrl,
+                        responseEntity.getStatusCodeValue());
+                return ReplaySendResult.failed("response status: " + responseEntity.getStatusCodeValue(),
+                        fullUrl);
+            }
+            return fromResult(request, fullUrl, responseEntity.getHeaders(), responseEntity.getBody());
+        });
+    }
+
+    private Charset requestCharset(HttpHeaders httpHeaders) {
+        MediaType contentType = httpHeaders.getContentType();
+        if (contentType != null && contentType.getCharset() != null) {
+            return contentType.getCharset();
+        }
+        return StandardCharsets.UTF_8;
     }
 
     private HttpHeaders createRequestHeaders(Map<String, String> sourceHeaders, String format) {
@@ -227,13 +387,6 @@ final class HttpServletReplaySender extends AbstractReplaySender {
         return httpHeaders;
     }
 
-    private Object decode(String requestMessage) {
-        if (BASE_64_PATTERN.matcher(requestMessage).matches()) {
-            return Base64.getDecoder().decode(requestMessage);
-        }
-        return requestMessage;
-    }
-
     private boolean shouldApplyHttpBody(HttpMethod httpMethod) {
         return httpMethod == HttpMethod.POST || httpMethod == HttpMethod.PUT || httpMethod == HttpMethod.PATCH ||
                 httpMethod == HttpMethod.DELETE;
@@ -260,25 +413,17 @@ final class HttpServletReplaySender extends AbstractReplaySender {
         return MapUtils.isNotEmpty(requestHeaders) && requestHeaders.containsKey(CommonConstant.AREX_RECORD_ID);
     }
 
-    private ReplaySendResult fromHttpResult(Map<?, ?> requestHeaders, String url, ResponseEntity<?> responseEntity) {
-        HttpHeaders responseHeaders = null;
-        Object responseBody = null;
-        if (responseEntity != null) {
-            responseHeaders = responseEntity.getHeaders();
-            responseBody = responseEntity.getBody();
+    private ReplaySendResult fromResult(PreparedRequest request, String url, Map<?, ?> responseHeaders,
+                                        byte[] responseBody) {
+        LOGGER.info("invoke result url:{} ,request header:{},response header:{}, body size:{}", url,
+                request.headers, responseHeaders, bodySize(responseBody));
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("invoke result url:{} ,body preview:{}", url, previewBody(responseBody, request.binaryBody));
         }
-        return fromResult(requestHeaders, url, responseHeaders, responseBody);
-    }
-
-    private ReplaySendResult fromResult(Map<?, ?> requestHeaders, String url, Map<?, ?> responseHeaders,
-                                        Object responseBody) {
-        String body = encodeResponseAsString(responseBody);
-        LOGGER.info("invoke result url:{} ,request header:{},response header:{}, body:{}", url, requestHeaders,
-                responseHeaders, body);
         if (responseHeaders == null) {
             return ReplaySendResult.failed("replay post error,review log find more details", url);
         }
-        if (!isReplayRequest(requestHeaders)) {
+        if (!isReplayRequest(request.headers)) {
             return ReplaySendResult.success(StringUtils.EMPTY, StringUtils.EMPTY, url);
         }
         String resultId = replayResultId(responseHeaders);
@@ -288,22 +433,22 @@ final class HttpServletReplaySender extends AbstractReplaySender {
         return ReplaySendResult.success(resultId, StringUtils.EMPTY, url);
     }
 
-    private String encodeResponseAsString(Object responseBody) {
-        if (responseBody == null) {
+    private int bodySize(byte[] body) {
+        return body == null ? 0 : body.length;
+    }
+
+    /**
+     * only the leading bytes are decoded for logging, binary bodies are previewed as base64
+     */
+    private String previewBody(byte[] body, boolean binaryBody) {
+        if (body == null) {
             return null;
         }
-        if (responseBody instanceof String) {
-            return (String) responseBody;
-        }
-        if (responseBody instanceof byte[]) {
-            return Base64.getEncoder().encodeToString((byte[]) responseBody);
+        byte[] preview = body.length > RESPONSE_PREVIEW_BYTES ? Arrays.copyOf(body, RESPONSE_PREVIEW_BYTES) : body;
+        if (binaryBody) {
+            return Base64.getEncoder().encodeToString(preview);
         }
-        try {
-            return objectMapper.writeValueAsString(responseBody);
-        } catch (JsonProcessingException e) {
-            LOGGER.warn("encodeAsString error:{}", e.getMessage(), e);
-        }
-        return null;
+        return new String(preview, StandardCharsets.UTF_8);
     }
 
     private String replayResultId(Map<?, ?> responseHeaders) {
@@ -319,4 +464,14 @@ final class HttpServletReplaySender extends AbstractReplaySender {
         }
         return null;
     }
+
+    private static final class PreparedRequest {
+        private String method;
+        private HttpMethod httpMethod;
+        private String operation;
+        private HttpHeaders headers;
+        private byte[] body;
+        private boolean binaryBody;
+        private boolean discardResponseBody;
+    }
 }
\ No newline at end of file
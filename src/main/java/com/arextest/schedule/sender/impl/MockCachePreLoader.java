@@ -2,16 +2,20 @@ package com.arextest.schedule.sender.impl;
 
 import com.arextest.model.replay.QueryMockCacheRequestType;
 import com.arextest.model.replay.QueryMockCacheResponseType;
+import com.arextest.schedule.client.AsyncHttpWepServiceApiClient;
 import com.arextest.schedule.client.HttpWepServiceApiClient;
 import com.arextest.schedule.model.plan.BuildReplayPlanType;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
 
 import static com.arextest.schedule.common.CommonConstant.PINNED;
 
 
+@Slf4j
 @Component
 final class MockCachePreLoader {
     @Value("${arex.storage.cacheLoad.url}")
@@ -21,6 +25,8 @@ final class MockCachePreLoader {
 
     @Resource
     private HttpWepServiceApiClient httpWepServiceApiClient;
+    @Resource
+    private AsyncHttpWepServiceApiClient asyncHttpWepServiceApiClient;
 
     void removeMockSource(String replayId) {
         QueryMockCacheRequestType mockCacheRequestType = new QueryMockCacheRequestType();
@@ -29,11 +35,31 @@ final class MockCachePreLoader {
     }
 
     void fillMockSource(String replayId, int replayPlanType) {
+        QueryMockCacheRequestType mockCacheRequestType = createFillRequest(replayId, replayPlanType);
+        httpWepServiceApiClient.jsonPost(cachePreloadUrl, mockCacheRequestType, QueryMockCacheResponseType.class);
+    }
+
+    /**
+     * same as fillMockSource, the returned future never completed exceptionally
+     */
+    CompletableFuture<Void> fillMockSourceAsync(String replayId, int replayPlanType) {
+        QueryMockCacheRequestType mockCacheRequestType = createFillRequest(replayId, replayPlanType);
+        return asyncHttpWepServiceApiClient.jsonPost(cachePreloadUrl, mockCacheRequestType)
+                .handle((response, throwable) -> {
+                    if (throwable != null) {
+                        LOGGER.error("http post url: {} ,error: {} ,recordId: {}", cachePreloadUrl,
+                                throwable.getMessage(), replayId, throwable);
+                    }
+                    return null;
+                });
+    }
+
+    private QueryMockCacheRequestType createFillRequest(String replayId, int replayPlanType) {
         QueryMockCacheRequestType mockCacheRequestType = new QueryMockCacheRequestType();
         mockCacheRequestType.setRecordId(replayId);
         if (replayPlanType == BuildReplayPlanType.BY_FIXED_CASE.getValue()) {
             mockCacheRequestType.setSourceProvider(PINNED);
         }
-        httpWepServiceApiClient.jsonPost(cachePreloadUrl, mockCacheRequestType, QueryMockCacheResponseType.class);
+        return mockCacheRequestType;
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.arextest.schedule.serialization;
+
+import com.arextest.common.serialization.SerializationProvider;
+import com.arextest.common.serialization.SerializationProviders;
+import com.arextest.common.utils.SerializationUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.types.Binary;
+
+import java.io.IOException;
+
+/**
+ * The zstd compressed json stored as the raw bytes of a bson binary.
+ * The legacy stored form is the base64 text of the compressed bytes, it's still readable.
+ * <p>
+ * It's compressed by the reused contexts of {@link ZstdCompressor}, the frames written by a stream before
+ * are decompressed by a stream.
+ *
+ * @since 2023/4/18
+ */
+public final class ZstdBinarySerializer {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final SerializationProvider SERIALIZATION_PROVIDER =
+            SerializationProviders.jacksonProvider(OBJECT_MAPPER);
+
+    private ZstdBinarySerializer() {
+    }
+
+    public static byte[] serialize(Object value) {
+        try {
+            return ZstdCompressor.compress(OBJECT_MAPPER.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("serialize error: " + e.getMessage(), e);
+        }
+    }
+
+    public static <T> T deserialize(byte[] zstdValues, Class<T> clazz) {
+        if (zstdValues == null || zstdValues.length == 0) {
+            return null;
+        }
+        byte[] jsonValues = ZstdCompressor.decompress(zstdValues);
+        if (jsonValues == null) {
+            return SerializationUtils.useZstdDeserialize(SERIALIZATION_PROVIDER, zstdValues, clazz);
+        }
+        try {
+            return OBJECT_MAPPER.readValue(jsonValues, clazz);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("deserialize error: " + e.getMessage(), e);
+        }
+    }
+
+    public static <T> T deserializeBase64(String base64Text, Class<T> clazz) {
+        if (StringUtils.isEmpty(base64Text)) {
+            return null;
+        }
+        return SerializationUtils.useZstdDeserialize(base64Text, clazz);
+    }
+
+    /**
+     * @param stored the value read from mongo, either a binary or the legacy base64 text
+     */
+    public static <T> T deserializeStored(Object stored, Class<T> clazz) {
+        if (stored instanceof Binary) {
+            return deserialize(((Binary) stored).getData(), clazz);
+        }
+        if (stored instanceof byte[]) {
+            return deserialize((byte[]) stored, clazz);
+        }
+        if (stored instanceof String) {
+            return deserializeBase64((String) stored, clazz);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,191 @@
+package com.arextest.schedule.serialization;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The zstd contexts are kept per thread and reused, instead of created and freed per call.
+ * <p>
+ * A trained dictionary could be registered for a mock category, the frames compressed with it carry the
+ * dictionary id, so they are decompressed by the id without knowing the category.
+ * The category of compressing is given by {@link #withCategory}, as the mongo converters don't know it.
+ * <p>
+ * The native memory of contexts is freed explicitly: the contexts of a terminated thread are closed when the
+ * contexts of a new thread are created, and all of them are closed by {@link #closeContexts()} at shutdown.
+ *
+ * @since 2023/4/19
+ */
+public final class ZstdCompressor {
+    private static final int COMPRESSION_LEVEL = 3;
+    private static final String NO_DICTIONARY = StringUtils.EMPTY;
+    private static final int NO_DICTIONARY_ID = 0;
+    /**
+     * the larger frame is decompressed by a stream, not to allocate the whole content claimed by the frame header
+     */
+    private static final int MAX_DIRECT_DECOMPRESS_SIZE = 32 * 1024 * 1024;
+
+    private static final Map<String, ZstdDictCompress> COMPRESS_DICTIONARY_MAP = new ConcurrentHashMap<>();
+    private static final Map<Integer, ZstdDictDecompress> DECOMPRESS_DICTIONARY_MAP = new ConcurrentHashMap<>();
+    private static final Set<ThreadContexts> CREATED_CONTEXTS = ConcurrentHashMap.newKeySet();
+    private static final ThreadLocal<ThreadContexts> THREAD_CONTEXTS =
+            ThreadLocal.withInitial(ZstdCompressor::newThreadContexts);
+    private static final ThreadLocal<String> CURRENT_CATEGORY = new ThreadLocal<>();
+
+    private ZstdCompressor() {
+    }
+
+    /**
+     * register before any compressing, a frame compressed with it requires it to decompress.
+     */
+    static void registerDictionary(String category, byte[] dictionary) {
+        int dictionaryId = (int) Zstd.getDictIdFromDict(dictionary);
+        DECOMPRESS_DICTIONARY_MAP.put(dictionaryId, new ZstdDictDecompress(dictionary));
+        COMPRESS_DICTIONARY_MAP.put(category, new ZstdDictCompress(dictionary, COMPRESSION_LEVEL));
+    }
+
+    /**
+     * compress the values within the action by the dictionary of the category
+     */
+    public static <T> T withCategory(String category, Supplier<T> action) {
+        String previous = CURRENT_CATEGORY.get();
+        CURRENT_CATEGORY.set(category);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_CATEGORY.remove();
+            } else {
+                CURRENT_CATEGORY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * the frame has the content size, and the dictionary id if the current category has one
+     */
+    public static byte[] compress(byte[] source) {
+        String category = CURRENT_CATEGORY.get();
+        ZstdDictCompress dictionary = category == null ? null : COMPRESS_DICTIONARY_MAP.get(category);
+        String contextKey = dictionary == null ? NO_DICTIONARY : category;
+        ThreadContexts contexts = THREAD_CONTEXTS.get();
+        synchronized (contexts) {
+            if (!contexts.closed) {
+                return contexts.compressContextMap.computeIfAbsent(contextKey, key -> newCompressCtx(dictionary))
+                        .compress(source);
+            }
+        }
+        ZstdCompressCtx compressCtx = newCompressCtx(dictionary);
+        try {
+            return compressCtx.compress(source);
+        } finally {
+            compressCtx.close();
+        }
+    }
+
+    /**
+     * @return null if the content size is unknown, such as the frame written by a stream, or too large to
+     * decompress at once, the caller should decompress it by a stream
+     */
+    public static byte[] decompress(byte[] source) {
+        long contentSize = Zstd.decompressedSize(source);
+        if (contentSize <= 0 || contentSize > MAX_DIRECT_DECOMPRESS_SIZE) {
+            return null;
+        }
+        int dictionaryId = (int) Zstd.getDictIdFromFrame(source);
+        ThreadContexts contexts = THREAD_CONTEXTS.get();
+        synchronized (contexts) {
+            if (!contexts.closed) {
+                return contexts.decompressContextMap.computeIfAbsent(dictionaryId, ZstdCompressor::newDecompressCtx)
+                        .decompress(source, (int) contentSize);
+            }
+        }
+        ZstdDecompressCtx decompressCtx = newDecompressCtx(dictionaryId);
+        try {
+            return decompressCtx.decompress(source, (int) contentSize);
+        } finally {
+            decompressCtx.close();
+        }
+    }
+
+    /**
+     * close the contexts of all threads, the later calls use a temporary context per call
+     */
+    static void closeContexts() {
+        for (ThreadContexts contexts : CREATED_CONTEXTS) {
+            contexts.close();
+        }
+        CREATED_CONTEXTS.clear();
+    }
+
+    private static ThreadContexts newThreadContexts() {
+        Iterator<ThreadContexts> iterator = CREATED_CONTEXTS.iterator();
+        while (iterator.hasNext()) {
+            ThreadContexts contexts = iterator.next();
+            if (!contexts.owner.isAlive()) {
+                contexts.close();
+                iterator.remove();
+            }
+        }
+        ThreadContexts contexts = new ThreadContexts(Thread.currentThread());
+        CREATED_CONTEXTS.add(contexts);
+        return contexts;
+    }
+
+    private static ZstdCompressCtx newCompressCtx(ZstdDictCompress dictionary) {
+        ZstdCompressCtx ctx = new ZstdCompressCtx();
+        ctx.setLevel(COMPRESSION_LEVEL);
+        if (dictionary != null) {
+            ctx.loadDict(dictionary);
+        }
+        return ctx;
+    }
+
+    private static ZstdDecompressCtx newDecompressCtx(int dictionaryId) {
+        ZstdDecompressCtx ctx = new ZstdDecompressCtx();
+        if (dictionaryId != NO_DICTIONARY_ID) {
+            ZstdDictDecompress dictionary = DECOMPRESS_DICTIONARY_MAP.get(dictionaryId);
+            if (dictionary == null) {
+                ctx.close();
+                throw new IllegalStateException("zstd dictionary not registered, id: " + dictionaryId);
+            }
+            ctx.loadDict(dictionary);
+        }
+        return ctx;
+    }
+
+    /**
+     * the contexts used by the owner thread only, the lock is contended only by closing
+     */
+    private static final class ThreadContexts {
+        private final Thread owner;
+        private final Map<String, ZstdCompressCtx> compressContextMap = new HashMap<>();
+        private final Map<Integer, ZstdDecompressCtx> decompressContextMap = new HashMap<>();
+        private boolean closed;
+
+        private ThreadContexts(Thread owner) {
+            this.owner = owner;
+        }
+
+        private synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            compressContextMap.values().forEach(ZstdCompressCtx::close);
+            compressContextMap.clear();
+            decompressContextMap.values().forEach(ZstdDecompressCtx::close);
+            decompressContextMap.clear();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.arextest.schedule.serialization;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Load the trained zstd dictionaries from the configured directory, each file named as {@code <category>.dict},
+ * such as {@code Servlet.dict} trained by {@code zstd --train} from the recorded requests of the category.
+ * <p>
+ * A dictionary should be kept as long as any case compressed with it is readable.
+ * The reused contexts of {@link ZstdCompressor} are closed at shutdown.
+ *
+ * @since 2023/4/19
+ */
+@Slf4j
+@Component
+final class ZstdDictionaryLoader {
+    private static final String DICTIONARY_FILE_SUFFIX = ".dict";
+    @Value("${arex.schedule.zstd.dictionaryDir:}")
+    private String dictionaryDir;
+
+    @PostConstruct
+    void load() {
+        if (StringUtils.isEmpty(dictionaryDir)) {
+            return;
+        }
+        File[] dictionaryFiles = new File(dictionaryDir).listFiles((dir, name) -> name.endsWith(DICTIONARY_FILE_SUFFIX));
+        if (dictionaryFiles == null) {
+            LOGGER.warn("zstd dictionary dir not found: {}", dictionaryDir);
+            return;
+        }
+        for (File dictionaryFile : dictionaryFiles) {
+            String category = StringUtils.removeEnd(dictionaryFile.getName(), DICTIONARY_FILE_SUFFIX);
+            try {
+                ZstdCompressor.registerDictionary(category, Files.readAllBytes(dictionaryFile.toPath()));
+                LOGGER.info("zstd dictionary loaded, category: {} ,file: {}", category, dictionaryFile);
+            } catch (Throwable throwable) {
+                LOGGER.error("load zstd dictionary error: {} ,file: {}", throwable.getMessage(), dictionaryFile,
+                        throwable);
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        ZstdCompressor.closeContexts();
+    }
+}
@@ -11,8 +11,10 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Base64;
 
 /**
@@ -31,11 +33,19 @@ public final class ZstdJacksonSerializer {
         this.serializationProvider = SerializationProviders.jacksonProvider(this.objectMapper);
     }
 
+    /**
+     * compressed by the reused context as a single frame, which is readable by a zstd stream
+     */
     public <T> void serializeTo(T value, OutputStream outputStream) {
         if (value == null) {
             return;
         }
-        SerializationUtils.useZstdSerializeTo(this.serializationProvider, outputStream, value);
+        try {
+            outputStream.write(ZstdCompressor.compress(this.objectMapper.writeValueAsBytes(value)));
+        } catch (IOException e) {
+            LOGGER.error("serialize to stream error: {}", e.getMessage(), e);
+            throw new UncheckedIOException(e);
+        }
     }
 
     public <T> T deserialize(InputStream inputStream, Class<T> clazz) {
@@ -52,10 +62,22 @@ public final class ZstdJacksonSerializer {
         return deserialize(Base64.getDecoder().decode(base64Text), clazz);
     }
 
+    /**
+     * the frame without content size, such as written by a stream, is decompressed by a stream
+     */
     public <T> T deserialize(byte[] zstdValues, Class<T> clazz) {
         if (zstdValues == null) {
             return null;
         }
-        return SerializationUtils.useZstdDeserialize(this.serializationProvider, zstdValues, clazz);
+        byte[] jsonValues = ZstdCompressor.decompress(zstdValues);
+        if (jsonValues == null) {
+            return SerializationUtils.useZstdDeserialize(this.serializationProvider, zstdValues, clazz);
+        }
+        try {
+            return this.objectMapper.readValue(jsonValues, clazz);
+        } catch (IOException e) {
+            LOGGER.error("deserialize error: {}", e.getMessage(), e);
+            return null;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.arextest.schedule.service;
+
+import com.arextest.schedule.mdc.AbstractTracedRunnable;
+import com.arextest.schedule.mdc.MDCTracer;
+import com.arextest.schedule.model.LogType;
+import com.arextest.schedule.model.ReplayActionCaseItem;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The comparison of a sent case, it runs on the compare stage so that the send threads are released
+ * as soon as the remote responses arrived.
+ *
+ * @since 2023/4/13
+ */
+@Slf4j
+final class AsyncCompareCaseTaskRunnable extends AbstractTracedRunnable {
+    private transient final ReplayActionCaseItem caseItem;
+    private transient final ConsoleLogService consoleLogService;
+    private transient final ReplayCaseTransmitService transmitService;
+    private transient final long queuedTime;
+
+    AsyncCompareCaseTaskRunnable(ReplayCaseTransmitService transmitService, ConsoleLogService consoleLogService,
+                                 ReplayActionCaseItem caseItem) {
+        this.transmitService = transmitService;
+        this.consoleLogService = consoleLogService;
+        this.caseItem = caseItem;
+        this.queuedTime = System.currentTimeMillis();
+    }
+
+    @Override
+    protected void doWithTracedRunning() {
+        try {
+            MDCTracer.addDetailId(caseItem.getId());
+            consoleLogService.onConsoleLogEvent(System.currentTimeMillis() - queuedTime,
+                    LogType.COMPARE_LAG.getValue(), caseItem.getPlanItemId(), caseItem.getParent());
+            transmitService.compareSentResult(caseItem);
+        } catch (Throwable throwable) {
+            LOGGER.error("async compare Id: {} , error: {}", caseItem.getId(), throwable.getMessage(), throwable);
+        } finally {
+            MDCTracer.removeDetailId();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.arextest.schedule.service;
+
+import com.arextest.schedule.common.SendSemaphoreLimiter;
+import com.arextest.schedule.mdc.AbstractTracedRunnable;
+import com.arextest.schedule.mdc.MDCTracer;
+import com.arextest.schedule.model.CaseSendStatusType;
+import com.arextest.schedule.model.FailReasonType;
+import com.arextest.schedule.model.LogType;
+import com.arextest.schedule.model.ReplayActionCaseItem;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The completion of a non-blocking send, it's created at submitting to keep the trace context
+ * and runs after the remote responses arrived.
+ *
+ * @since 2023/4/12
+ */
+@Slf4j
+@Setter
+final class AsyncSendCaseCompletionRunnable extends AbstractTracedRunnable {
+    private transient ReplayActionCaseItem caseItem;
+    private transient CountDownLatch groupSentLatch;
+    private transient SendSemaphoreLimiter limiter;
+    private transient Semaphore inFlightPermits;
+    private transient ConsoleLogService consoleLogService;
+    private transient boolean success;
+    private transient Throwable sendError;
+    private transient long rttMillis = -1L;
+
+    private transient final ReplayCaseTransmitService transmitService;
+    private transient final long submittedTime;
+
+    AsyncSendCaseCompletionRunnable(ReplayCaseTransmitService transmitService) {
+        this.transmitService = transmitService;
+        this.submittedTime = System.currentTimeMillis();
+    }
+
+    /**
+     * release the waiting of sending without updating the result of case
+     */
+    void abandon() {
+        groupSentLatch.countDown();
+        limiter.release(false);
+        inFlightPermits.release();
+    }
+
+    @Override
+    protected void doWithTracedRunning() {
+        try {
+            MDCTracer.addDetailId(caseItem.getId());
+            consoleLogService.onConsoleLogEvent(System.currentTimeMillis() - submittedTime,
+                    LogType.SEND_LAG.getValue(), caseItem.getPlanItemId(), caseItem.getParent());
+            if (sendError != null) {
+                LOGGER.error("async send Id: {} , error: {}", caseItem.getId(), sendError.getMessage(), sendError);
+            }
+            LOGGER.info("async send Id: {} , result:{}", caseItem.getId(), success);
+            transmitService.updateSendResult(caseItem, success ? CaseSendStatusType.SUCCESS :
+                    CaseSendStatusType.EXCEPTION_FAILED);
+        } catch (Throwable throwable) {
+            LOGGER.error("async send completion Id: {} , error: {}", caseItem.getId(),
+                    throwable.getMessage(), throwable);
+        } finally {
+            if (!success) {
+                consoleLogService.staticsFailDetailReasonEvent(caseItem, FailReasonType.SEND_FAIL.getValue(), LogType.STATICS_FAIL_REASON.getValue());
+            }
+            groupSentLatch.countDown();
+            limiter.release(success, rttMillis);
+            inFlightPermits.release();
+            MDCTracer.removeDetailId();
+        }
+    }
+}
@@ -27,18 +27,24 @@ final class AsyncSendCaseTaskRunnable extends AbstractTracedRunnable {
     private transient ConsoleLogService consoleLogService;
 
     private transient final ReplayCaseTransmitService transmitService;
+    private transient final long submittedTime;
 
     AsyncSendCaseTaskRunnable(ReplayCaseTransmitService transmitService) {
         this.transmitService = transmitService;
+        this.submittedTime = System.currentTimeMillis();
     }
 
     @Override
     protected void doWithTracedRunning() {
-        // TODO: use send time decrease or increase the sendLimiter of replay case
         boolean success = false;
+        long rttMillis = -1L;
         try {
             MDCTracer.addDetailId(caseItem.getId());
+            long sendStartTime = System.currentTimeMillis();
             success = this.replaySender.send(caseItem);
+            rttMillis = System.currentTimeMillis() - sendStartTime;
+            consoleLogService.onConsoleLogEvent(System.currentTimeMillis() - submittedTime,
+                    LogType.SEND_LAG.getValue(), caseItem.getPlanItemId(), caseItem.getParent());
             LOGGER.info("async run sender Id: {} , result:{}", caseItem.getId(), success);
             transmitService.updateSendResult(caseItem, success ? CaseSendStatusType.SUCCESS :
                     CaseSendStatusType.EXCEPTION_FAILED);
@@ -51,7 +57,7 @@ final class AsyncSendCaseTaskRunnable extends AbstractTracedRunnable {
                 consoleLogService.staticsFailDetailReasonEvent(caseItem, FailReasonType.SEND_FAIL.getValue(), LogType.STATICS_FAIL_REASON.getValue());
             }
             groupSentLatch.countDown();
-            limiter.release(success);
+            limiter.release(success, rttMillis);
             MDCTracer.removeDetailId();
         }
     }
@@ -0,0 +1,225 @@
+package com.arextest.schedule.service;
+
+import com.arextest.common.model.response.GenericResponseType;
+import com.arextest.common.model.response.Response;
+import com.arextest.report.model.api.contracts.PushCompareResultsRequestType;
+import com.arextest.report.model.api.contracts.common.CompareResult;
+import com.arextest.schedule.client.HttpWepServiceApiClient;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gathers the compared results of cases, and pushes them to report by batches of size or time bounded,
+ * the pushing is limited by the concurrency and retried on failure.
+ * <p>
+ * The results are taken from the pending queue only when a push slot is free, so the producers are blocked
+ * if the results can't be pushed in time and the pending queue is full.
+ * The threads are started at the first results added, so nothing runs if the direct push mode configured.
+ *
+ * @since 2023/4/16
+ */
+@Slf4j
+@Component
+final class CompareResultBatchPusher {
+    private static final int PENDING_QUEUE_MAX_CAPACITY_SIZE = 20000;
+    private static final long RETRY_BACKOFF_MILLIS = 200L;
+    private static final long FLUSH_WAIT_SECONDS = 60L;
+    @Resource
+    private HttpWepServiceApiClient httpWepServiceApiClient;
+    @Value("${arex.report.push.compareResult.url}")
+    private String pushReplayCompareResultUrl;
+    @Value("${arex.schedule.report.push.batchSize:100}")
+    private int batchSize;
+    @Value("${arex.schedule.report.push.flushIntervalMillis:500}")
+    private long flushIntervalMillis;
+    @Value("${arex.schedule.report.push.maxConcurrency:4}")
+    private int maxConcurrency;
+    @Value("${arex.schedule.report.push.retryTimes:2}")
+    private int retryTimes;
+
+    private final BlockingQueue<CompareResult> pendingQueue = new ArrayBlockingQueue<>(PENDING_QUEUE_MAX_CAPACITY_SIZE);
+    private final Set<CompletableFuture<Void>> inFlightPushSet = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean drainSubmitted = new AtomicBoolean();
+    private final Object drainLock = new Object();
+    private volatile ScheduledExecutorService drainExecutorService;
+    private ExecutorService pushExecutorService;
+    private Semaphore pushSlots;
+
+    private synchronized void startIfAbsent() {
+        if (drainExecutorService != null) {
+            return;
+        }
+        ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setNameFormat("replay-report-drain-%d")
+                        .setDaemon(true)
+                        .build());
+        this.pushSlots = new Semaphore(Math.max(1, maxConcurrency));
+        this.pushExecutorService = Executors.newFixedThreadPool(Math.max(1, maxConcurrency),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("replay-report-push-%d")
+                        .setDaemon(true)
+                        .build());
+        scheduledExecutorService.scheduleWithFixedDelay(this::drainQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        this.drainExecutorService = scheduledExecutorService;
+    }
+
+    void add(List<CompareResult> resultList) throws InterruptedException {
+        if (drainExecutorService == null) {
+            startIfAbsent();
+        }
+        for (CompareResult compareResult : resultList) {
+            pendingQueue.put(compareResult);
+        }
+        if (pendingQueue.size() >= batchSize) {
+            submitDrain();
+        }
+    }
+
+    private void submitDrain() {
+        if (!drainSubmitted.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            drainExecutorService.execute(() -> {
+                drainSubmitted.set(false);
+                drainQuietly();
+            });
+        } catch (RejectedExecutionException e) {
+            drainSubmitted.set(false);
+            LOGGER.warn("submit compare results draining rejected: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * push all the pending results, and wait until all the pushing finished.
+     * the draining is serialized, so the results taken by another draining are registered as in-flight before.
+     */
+    void flush() {
+        if (drainExecutorService == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(FLUSH_WAIT_SECONDS);
+        while (true) {
+            List<CompletableFuture<Void>> waitList;
+            synchronized (drainLock) {
+                drainQuietly();
+                waitList = new ArrayList<>(inFlightPushSet);
+            }
+            if (waitList.isEmpty()) {
+                if (pendingQueue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            long waitMillis = deadline - System.currentTimeMillis();
+            if (waitMillis <= 0) {
+                LOGGER.warn("wait compare result pushing timeout, pending size: {}", pendingQueue.size());
+                return;
+            }
+            try {
+                // a finished pushing frees a slot for the pending results
+                CompletableFuture.anyOf(waitList.toArray(new CompletableFuture[0])).get(waitMillis,
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable throwable) {
+                LOGGER.warn("wait compare result pushing error: {}", throwable.getMessage());
+            }
+        }
+    }
+
+    /**
+     * take a batch for each free push slot, the rest is drained again when a pushing finished.
+     */
+    private void drainQuietly() {
+        synchronized (drainLock) {
+            try {
+                while (!pendingQueue.isEmpty() && pushSlots.tryAcquire()) {
+                    List<CompareResult> batchList = new ArrayList<>(batchSize);
+                    if (pendingQueue.drainTo(batchList, batchSize) == 0) {
+                        pushSlots.release();
+                        return;
+                    }
+                    submitPush(batchList);
+                }
+            } catch (Throwable throwable) {
+                LOGGER.error("drain compare results error: {}", throwable.getMessage(), throwable);
+            }
+        }
+    }
+
+    private void submitPush(List<CompareResult> batchList) {
+        CompletableFuture<Void> pushFuture;
+        try {
+            pushFuture = CompletableFuture.runAsync(() -> pushWithRetry(batchList), pushExecutorService);
+        } catch (Throwable throwable) {
+            pushSlots.release();
+            throw throwable;
+        }
+        inFlightPushSet.add(pushFuture);
+        pushFuture.whenComplete((ignored, throwable) -> {
+            pushSlots.release();
+            inFlightPushSet.remove(pushFuture);
+            if (!pendingQueue.isEmpty()) {
+                submitDrain();
+            }
+        });
+    }
+
+    private void pushWithRetry(List<CompareResult> batchList) {
+        PushCompareResultsRequestType requestType = new PushCompareResultsRequestType();
+        requestType.setResults(batchList);
+        for (int i = 0; i <= retryTimes; i++) {
+            Response response = httpWepServiceApiClient.jsonPost(pushReplayCompareResultUrl, requestType,
+                    GenericResponseType.class);
+            if (response != null && !response.getResponseStatusType().hasError()) {
+                return;
+            }
+            LOGGER.warn("push replay compared result to report size: {}, times: {}, result:{}", batchList.size(),
+                    i + 1, response);
+            if (i == retryTimes) {
+                break;
+            }
+            try {
+                Thread.sleep(RETRY_BACKOFF_MILLIS * (i + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        LOGGER.error("push replay compared result to report failed, size: {}", batchList.size());
+    }
+
+    @PreDestroy
+    void close() {
+        flush();
+        if (drainExecutorService != null) {
+            drainExecutorService.shutdown();
+        }
+        if (pushExecutorService != null) {
+            pushExecutorService.shutdown();
+        }
+    }
+}
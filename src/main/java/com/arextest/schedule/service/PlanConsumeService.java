@@ -5,6 +5,7 @@ import com.arextest.schedule.client.HttpWepServiceApiClient;
 import com.arextest.schedule.common.CommonConstant;
 import com.arextest.schedule.common.SendSemaphoreLimiter;
 import com.arextest.schedule.dao.mongodb.ReplayActionCaseItemRepository;
+import com.arextest.schedule.dao.mongodb.ReplayCaseStatusBuffer;
 import com.arextest.schedule.dao.mongodb.ReplayPlanRepository;
 import com.arextest.schedule.mdc.AbstractTracedRunnable;
 import com.arextest.schedule.mdc.MDCTracer;
@@ -15,12 +16,22 @@ import com.arextest.schedule.utils.ReplayParentBinder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import static com.arextest.schedule.common.CommonConstant.PINNED;
 
@@ -31,15 +42,36 @@ import static com.arextest.schedule.common.CommonConstant.PINNED;
 @Slf4j
 @Service
 public final class PlanConsumeService {
+    private static final String PARALLEL_LOAD_MODE = "parallel";
+    private static final String STREAMING_LOAD_MODE = "streaming";
     @Resource
     private ReplayCaseRemoteLoadService caseRemoteLoadService;
     @Resource
     private ReplayActionCaseItemRepository replayActionCaseItemRepository;
     @Resource
+    private ReplayCaseStatusBuffer replayCaseStatusBuffer;
+    @Resource
     private ReplayCaseTransmitService replayCaseTransmitService;
     @Resource
     private ExecutorService preloadExecutorService;
     @Resource
+    private ExecutorService actionLoadExecutorService;
+    @Resource
+    private ExecutorService streamingLoadExecutorService;
+    /**
+     * sequential: all the actions are loaded one by one before sending.
+     * parallel: the actions are loaded concurrently, each one is sent once loaded.
+     * streaming: the loaded pages are sent directly while the next pages loading.
+     */
+    @Value("${arex.schedule.preload.mode:sequential}")
+    private String loadMode;
+    @Value("${arex.schedule.preload.parallelism:4}")
+    private int loadParallelism;
+    @Value("${arex.schedule.preload.streaming.queueSize:4}")
+    private int streamingQueueSize;
+    @Value("${arex.schedule.send.limiter.mode:gradient}")
+    private String sendLimiterMode;
+    @Resource
     private ReplayPlanRepository replayPlanRepository;
     @Resource
     private ProgressTracer progressTracer;
@@ -87,17 +119,35 @@ public final class PlanConsumeService {
     private void saveActionCaseToSend(ReplayPlan replayPlan) {
         MDCTracer.addPlanId(replayPlan.getId());
         MDCTracer.addAppId(replayPlan.getAppId());
+        if (StringUtils.equalsIgnoreCase(PARALLEL_LOAD_MODE, loadMode)) {
+            parallelSaveActionCaseToSend(replayPlan);
+            return;
+        }
+        if (StringUtils.equalsIgnoreCase(STREAMING_LOAD_MODE, loadMode)) {
+            streamingSaveActionCaseToSend(replayPlan);
+            return;
+        }
+        sequentialSaveActionCaseToSend(replayPlan);
+    }
+
+    private void sequentialSaveActionCaseToSend(ReplayPlan replayPlan) {
         int planSavedCaseSize = saveAllActionCase(replayPlan.getReplayActionItemList());
+        updatePlanCaseTotal(replayPlan, planSavedCaseSize);
+        this.sendAllActionCase(replayPlan);
+        if (planSavedCaseSize == 0) {
+            progressEvent.onReplayPlanFinish(replayPlan);
+        }
+    }
+
+    private void updatePlanCaseTotal(ReplayPlan replayPlan, int planSavedCaseSize) {
         if (planSavedCaseSize != replayPlan.getCaseTotalCount()) {
             LOGGER.info("update the plan TotalCount, plan id:{} ,appId: {} , size: {} -> {}", replayPlan.getId(),
                     replayPlan.getAppId(), replayPlan.getCaseTotalCount(), planSavedCaseSize);
             replayPlan.setCaseTotalCount(planSavedCaseSize);
             replayPlanRepository.updateCaseTotal(replayPlan.getId(), planSavedCaseSize);
         }
-        this.sendAllActionCase(replayPlan);
-        if (planSavedCaseSize == 0) {
-            progressEvent.onReplayPlanFinish(replayPlan);
-        }
+        // the total is final, cleared after it's updated
+        replayPlan.setCaseLoading(false);
     }
 
     private int saveAllActionCase(List<ReplayActionItem> replayActionItemList) {
@@ -108,61 +158,468 @@ public final class PlanConsumeService {
                 continue;
             }
             int actionSavedCount = streamingCaseItemSave(replayActionItem);
-            replayActionItem.setReplayCaseCount(actionSavedCount);
+            onActionCaseSaved(replayActionItem, actionSavedCount);
             planSavedCaseSize += actionSavedCount;
-            int preloaded = replayActionItem.getReplayCaseCount();
-            if (preloaded != actionSavedCount) {
-                replayActionItem.setReplayCaseCount(actionSavedCount);
-                LOGGER.warn("The saved case size of actionItem not equals, preloaded size:{},saved size:{}", preloaded,
-                        actionSavedCount);
-            }
-            progressEvent.onActionCaseLoaded(replayActionItem);
         }
         return planSavedCaseSize;
     }
 
-    private void sendAllActionCase(ReplayPlan replayPlan) {
-        progressTracer.initTotal(replayPlan);
-        final SendSemaphoreLimiter sendRateLimiter = new SendSemaphoreLimiter();
-        sendRateLimiter.setTotalTasks(replayPlan.getCaseTotalCount());
-        sendRateLimiter.setSendMaxRate(replayPlan.getReplaySendMaxQps());
-        boolean isInterrupted = false;
-        boolean isCancelled = false;
-        for (ReplayActionItem replayActionItem : replayPlan.getReplayActionItemList()) {
+    private void onActionCaseSaved(ReplayActionItem replayActionItem, int actionSavedCount) {
+        int preloaded = replayActionItem.getReplayCaseCount();
+        replayActionItem.setReplayCaseCount(actionSavedCount);
+        if (preloaded != actionSavedCount) {
+            LOGGER.warn("The saved case size of actionItem not equals, preloaded size:{},saved size:{}", preloaded,
+                    actionSavedCount);
+        }
+        progressEvent.onActionCaseLoaded(replayActionItem);
+    }
+
+    /**
+     * The actions are loaded concurrently, and each of them is sent as soon as its cases saved.
+     * <p>
+     * The plan total is unknown until all loaded, so the plan is marked case loading to be unfinishable before that,
+     * and the last loaded action is held back to send after the plan total updated,
+     * which makes sure the finished count crosses the total after it's known.
+     */
+    private void parallelSaveActionCaseToSend(ReplayPlan replayPlan) {
+        final List<ReplayActionItem> actionItemList = replayPlan.getReplayActionItemList();
+        final BlockingQueue<ReplayActionItem> loadedQueue = new LinkedBlockingQueue<>();
+        final Queue<ReplayActionItem> waitLoadQueue = new ConcurrentLinkedQueue<>();
+        for (ReplayActionItem replayActionItem : actionItemList) {
+            if (replayActionItem.getReplayStatus() == ReplayStatusType.INIT.getValue()) {
+                waitLoadQueue.add(replayActionItem);
+            } else {
+                loadedQueue.add(replayActionItem);
+            }
+        }
+        replayPlan.setCaseLoading(true);
+        final PlanSendContext sendContext = new PlanSendContext(replayPlan, replayPlan.getCaseTotalCount(),
+                sendLimiterMode);
+        int loaders = Math.min(Math.max(1, loadParallelism), waitLoadQueue.size());
+        for (int i = 0; i < loaders; i++) {
+            actionLoadExecutorService.execute(new ActionCaseLoadingRunnable(waitLoadQueue, loadedQueue));
+        }
+        int planSavedCaseSize = 0;
+        ReplayActionItem heldActionItem = null;
+        for (int i = 0; i < actionItemList.size(); i++) {
+            ReplayActionItem replayActionItem;
+            try {
+                replayActionItem = loadedQueue.take();
+            } catch (InterruptedException e) {
+                LOGGER.error("wait action case loaded interrupted, plan id:{}", replayPlan.getId());
+                waitLoadQueue.clear();
+                sendContext.interrupted = true;
+                if (heldActionItem != null) {
+                    sendActionCase(heldActionItem, sendContext);
+                }
+                finishPlanSending(replayPlan, sendContext);
+                // restored after the plan finished, which would give up on the interrupted flag
+                Thread.currentThread().interrupt();
+                return;
+            }
             MDCTracer.addActionId(replayActionItem.getId());
-            if (replayActionItem.finished()) {
+            planSavedCaseSize += replayActionItem.getReplayCaseCount();
+            progressTracer.initActionTotal(replayActionItem);
+            if (replayActionItem.isEmpty() || replayActionItem.finished()) {
+                sendActionCase(replayActionItem, sendContext);
                 continue;
             }
-            if (replayActionItem.isEmpty()) {
-                replayActionItem.setReplayFinishTime(new Date());
-                progressEvent.onActionComparisonFinish(replayActionItem);
-                continue;
+            if (heldActionItem != null) {
+                sendActionCase(heldActionItem, sendContext);
+            }
+            heldActionItem = replayActionItem;
+        }
+        updatePlanCaseTotal(replayPlan, planSavedCaseSize);
+        sendContext.sendRateLimiter.setTotalTasks(planSavedCaseSize);
+        progressTracer.initPlanTotal(replayPlan);
+        if (heldActionItem != null) {
+            MDCTracer.addActionId(heldActionItem.getId());
+            sendActionCase(heldActionItem, sendContext);
+        }
+        finishPlanSending(replayPlan, sendContext);
+        if (planSavedCaseSize == 0) {
+            progressEvent.onReplayPlanFinish(replayPlan);
+        }
+    }
+
+    private final class ActionCaseLoadingRunnable extends AbstractTracedRunnable {
+        private final Queue<ReplayActionItem> waitLoadQueue;
+        private final BlockingQueue<ReplayActionItem> loadedQueue;
+
+        private ActionCaseLoadingRunnable(Queue<ReplayActionItem> waitLoadQueue,
+                                          BlockingQueue<ReplayActionItem> loadedQueue) {
+            this.waitLoadQueue = waitLoadQueue;
+            this.loadedQueue = loadedQueue;
+        }
+
+        @Override
+        protected void doWithTracedRunning() {
+            ReplayActionItem replayActionItem;
+            while ((replayActionItem = waitLoadQueue.poll()) != null) {
+                int actionSavedCount = 0;
+                try {
+                    MDCTracer.addActionId(replayActionItem.getId());
+                    actionSavedCount = streamingCaseItemSave(replayActionItem);
+                } catch (Throwable throwable) {
+                    LOGGER.error("load action case error:{} ,action id:{}", throwable.getMessage(),
+                            replayActionItem.getId(), throwable);
+                } finally {
+                    onActionCaseSaved(replayActionItem, actionSavedCount);
+                    loadedQueue.add(replayActionItem);
+                }
             }
-            if (isCancelled) {
-                progressEvent.onActionCancelled(replayActionItem);
+        }
+    }
+
+    /**
+     * The pages of cases are saved by a loader and handed over by a bounded queue, the plan thread sends them
+     * without querying them back from the storage.
+     * <p>
+     * The action total is unknown until all its pages loaded, so the preloaded count is used as the total
+     * while streaming, the last page of the action is held until loaded to send after the total adjusted.
+     * The page that would reach the preloaded count is not sent, the rest cases of the action are sent by paging
+     * from the storage after loaded. The plan total is handled as the parallel mode, the last action is held back.
+     */
+    private void streamingSaveActionCaseToSend(ReplayPlan replayPlan) {
+        final BlockingQueue<StreamingPage> pageQueue = new ArrayBlockingQueue<>(Math.max(1, streamingQueueSize));
+        final StreamingCaseLoadingRunnable caseLoader = new StreamingCaseLoadingRunnable(replayPlan, pageQueue);
+        replayPlan.setCaseLoading(true);
+        try {
+            streamingLoadExecutorService.execute(caseLoader);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("streaming load rejected, load the plan sequentially, plan id:{}", replayPlan.getId());
+            replayPlan.setCaseLoading(false);
+            sequentialSaveActionCaseToSend(replayPlan);
+            return;
+        }
+        final PlanSendContext sendContext = new PlanSendContext(replayPlan, replayPlan.getCaseTotalCount(),
+                sendLimiterMode);
+        int planSavedCaseSize = 0;
+        StreamingAction streamingAction = null;
+        StreamingAction heldAction = null;
+        while (true) {
+            StreamingPage streamingPage;
+            try {
+                streamingPage = pageQueue.take();
+            } catch (InterruptedException e) {
+                LOGGER.error("wait streaming case loaded interrupted, plan id:{}", replayPlan.getId());
+                caseLoader.abandoned = true;
+                sendContext.interrupted = true;
+                if (streamingAction != null) {
+                    finishStreamingAction(streamingAction, sendContext);
+                }
+                if (heldAction != null) {
+                    finishStreamingAction(heldAction, sendContext);
+                }
+                finishPlanSending(replayPlan, sendContext);
+                // restored after the plan finished, which would give up on the interrupted flag
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (streamingPage == StreamingPage.END_OF_PLAN) {
+                break;
+            }
+            ReplayActionItem replayActionItem = streamingPage.actionItem;
+            if (streamingAction == null || streamingAction.actionItem != replayActionItem) {
+                streamingAction = new StreamingAction(replayActionItem);
+                MDCTracer.addActionId(replayActionItem.getId());
+            }
+            if (streamingPage.caseItemList != null) {
+                offerStreamingPage(streamingAction, streamingPage.caseItemList, sendContext, caseLoader);
                 continue;
             }
-            if (isInterrupted) {
-                progressEvent.onActionInterrupted(replayActionItem);
+            planSavedCaseSize += onStreamingActionLoaded(streamingAction, streamingPage);
+            // the loaded action is either finished or held, the later pages belong to the next action
+            StreamingAction loadedAction = streamingAction;
+            streamingAction = null;
+            if (replayActionItem.isEmpty() || replayActionItem.finished()) {
+                finishStreamingAction(loadedAction, sendContext);
                 continue;
             }
-            if (replayActionItem.getReplayFinishTime() == null) {
-                progressEvent.onActionBeforeSend(replayActionItem);
+            if (heldAction != null) {
+                MDCTracer.addActionId(heldAction.actionItem.getId());
+                finishStreamingAction(heldAction, sendContext);
             }
-            replayActionItem.setSendRateLimiter(sendRateLimiter);
-            isCancelled = sendByPaging(replayActionItem);
-            if (isCancelled) {
-                continue;
+            heldAction = loadedAction;
+        }
+        updatePlanCaseTotal(replayPlan, planSavedCaseSize);
+        sendContext.sendRateLimiter.setTotalTasks(planSavedCaseSize);
+        progressTracer.initPlanTotal(replayPlan);
+        if (heldAction != null) {
+            MDCTracer.addActionId(heldAction.actionItem.getId());
+            finishStreamingAction(heldAction, sendContext);
+        }
+        finishPlanSending(replayPlan, sendContext);
+        if (planSavedCaseSize == 0) {
+            progressEvent.onReplayPlanFinish(replayPlan);
+        }
+    }
+
+    /**
+     * the previous page is sent only if a later page loaded, so that the last page of the action is always held.
+     */
+    private void offerStreamingPage(StreamingAction streamingAction, List<ReplayActionCaseItem> caseItemList,
+                                    PlanSendContext sendContext, StreamingCaseLoadingRunnable caseLoader) {
+        List<ReplayActionCaseItem> previousList = streamingAction.pendingList;
+        streamingAction.pendingList = caseItemList;
+        if (previousList == null || streamingAction.overflowed || streamingAction.stopped) {
+            return;
+        }
+        if (streamingAction.sentSize + previousList.size() >= streamingAction.estimatedTotal) {
+            streamingAction.overflowed = true;
+            streamingAction.pendingList = null;
+            LOGGER.info("streaming cases reached the preloaded size {}, the rest sent by paging, action id:{}",
+                    streamingAction.estimatedTotal, streamingAction.actionItem.getId());
+            return;
+        }
+        if (!streamingAction.sending) {
+            if (sendContext.cancelled || sendContext.interrupted) {
+                caseLoader.stopped = true;
+                return;
+            }
+            beginStreamingSend(streamingAction, sendContext);
+        }
+        if (!sendStreamingPage(streamingAction, previousList, sendContext)) {
+            caseLoader.stopped = true;
+        }
+    }
+
+    private void beginStreamingSend(StreamingAction streamingAction, PlanSendContext sendContext) {
+        ReplayActionItem replayActionItem = streamingAction.actionItem;
+        if (replayActionItem.getReplayFinishTime() == null) {
+            progressEvent.onActionBeforeSend(replayActionItem);
+        }
+        replayActionItem.setSendRateLimiter(sendContext.sendRateLimiter);
+        progressTracer.initActionTotal(replayActionItem);
+        streamingAction.sending = true;
+    }
+
+    /**
+     * @return false if the plan cancelled or interrupted, the action event has been fired
+     */
+    private boolean sendStreamingPage(StreamingAction streamingAction, List<ReplayActionCaseItem> caseItemList,
+                                      PlanSendContext sendContext) {
+        ReplayActionItem replayActionItem = streamingAction.actionItem;
+        replayActionItem.setCaseItemList(caseItemList);
+        boolean cancelled = replayCaseTransmitService.send(replayActionItem, streamingAction.sentSize == 0);
+        streamingAction.sentSize += caseItemList.size();
+        if (cancelled) {
+            sendContext.cancelled = true;
+            streamingAction.stopped = true;
+            return false;
+        }
+        if (sendContext.sendRateLimiter.failBreak()) {
+            sendContext.interrupted = true;
+            streamingAction.stopped = true;
+            progressEvent.onActionInterrupted(replayActionItem);
+            return false;
+        }
+        return true;
+    }
+
+    private int onStreamingActionLoaded(StreamingAction streamingAction, StreamingPage loadedPage) {
+        ReplayActionItem replayActionItem = streamingAction.actionItem;
+        if (loadedPage.loaded) {
+            onActionCaseSaved(replayActionItem, loadedPage.savedCount);
+        }
+        if (streamingAction.sending) {
+            int delta = replayActionItem.getReplayCaseCount() - streamingAction.estimatedTotal;
+            if (delta != 0) {
+                progressTracer.adjustActionTotal(replayActionItem, delta);
+            }
+        } else {
+            progressTracer.initActionTotal(replayActionItem);
+        }
+        return replayActionItem.getReplayCaseCount();
+    }
+
+    private void finishStreamingAction(StreamingAction streamingAction, PlanSendContext sendContext) {
+        ReplayActionItem replayActionItem = streamingAction.actionItem;
+        List<ReplayActionCaseItem> pendingList = streamingAction.pendingList;
+        streamingAction.pendingList = null;
+        if (!streamingAction.sending) {
+            if (pendingList == null || streamingAction.overflowed || replayActionItem.isEmpty() ||
+                    replayActionItem.finished() || sendContext.cancelled || sendContext.interrupted) {
+                sendActionCase(replayActionItem, sendContext);
+                return;
             }
-            isInterrupted = sendRateLimiter.failBreak();
-            if (isInterrupted) {
+            beginStreamingSend(streamingAction, sendContext);
+        }
+        if (streamingAction.stopped) {
+            return;
+        }
+        if (sendContext.cancelled) {
+            progressEvent.onActionCancelled(replayActionItem);
+            return;
+        }
+        if (sendContext.interrupted) {
+            progressEvent.onActionInterrupted(replayActionItem);
+            return;
+        }
+        if (streamingAction.overflowed) {
+            sendContext.cancelled = sendByPaging(replayActionItem);
+            if (sendContext.cancelled) {
+                return;
+            }
+            sendContext.interrupted = sendContext.sendRateLimiter.failBreak();
+            if (sendContext.interrupted) {
                 progressEvent.onActionInterrupted(replayActionItem);
-                continue;
+                return;
+            }
+        } else if (pendingList != null && !sendStreamingPage(streamingAction, pendingList, sendContext)) {
+            return;
+        }
+        progressEvent.onActionAfterSend(replayActionItem);
+    }
+
+    private static final class StreamingAction {
+        private final ReplayActionItem actionItem;
+        private final int estimatedTotal;
+        private List<ReplayActionCaseItem> pendingList;
+        private int sentSize;
+        private boolean sending;
+        private boolean overflowed;
+        private boolean stopped;
+
+        private StreamingAction(ReplayActionItem actionItem) {
+            this.actionItem = actionItem;
+            this.estimatedTotal = actionItem.getReplayCaseCount();
+        }
+    }
+
+    /**
+     * A saved page of the action, or the action loaded if the case list is null.
+     */
+    private static final class StreamingPage {
+        private static final StreamingPage END_OF_PLAN = new StreamingPage(null, null, 0, false);
+        private final ReplayActionItem actionItem;
+        private final List<ReplayActionCaseItem> caseItemList;
+        private final int savedCount;
+        private final boolean loaded;
+
+        private StreamingPage(ReplayActionItem actionItem, List<ReplayActionCaseItem> caseItemList, int savedCount,
+                              boolean loaded) {
+            this.actionItem = actionItem;
+            this.caseItemList = caseItemList;
+            this.savedCount = savedCount;
+            this.loaded = loaded;
+        }
+    }
+
+    /**
+     * The pages are saved before handed over, so the send results are always updated to the saved cases.
+     * The pinned cases are saved at once and sent by paging from the storage.
+     */
+    private final class StreamingCaseLoadingRunnable extends AbstractTracedRunnable {
+        private final ReplayPlan replayPlan;
+        private final BlockingQueue<StreamingPage> pageQueue;
+        private volatile boolean stopped;
+        private volatile boolean abandoned;
+
+        private StreamingCaseLoadingRunnable(ReplayPlan replayPlan, BlockingQueue<StreamingPage> pageQueue) {
+            this.replayPlan = replayPlan;
+            this.pageQueue = pageQueue;
+        }
+
+        @Override
+        protected void doWithTracedRunning() {
+            try {
+                for (ReplayActionItem replayActionItem : replayPlan.getReplayActionItemList()) {
+                    if (replayActionItem.getReplayStatus() != ReplayStatusType.INIT.getValue() || stopped) {
+                        handOver(new StreamingPage(replayActionItem, null, 0, false));
+                        continue;
+                    }
+                    int actionSavedCount = loadActionCase(replayActionItem);
+                    handOver(new StreamingPage(replayActionItem, null, actionSavedCount, true));
+                }
+            } finally {
+                handOver(StreamingPage.END_OF_PLAN);
+            }
+        }
+
+        private int loadActionCase(ReplayActionItem replayActionItem) {
+            List<ReplayActionCaseItem> caseItemList = replayActionItem.getCaseItemList();
+            final int[] handedSize = new int[1];
+            try {
+                MDCTracer.addActionId(replayActionItem.getId());
+                if (CollectionUtils.isNotEmpty(caseItemList)) {
+                    return doFixedCaseSave(caseItemList);
+                }
+                return doPagingLoadCaseSave(replayActionItem, savedList -> {
+                    handedSize[0] += savedList.size();
+                    return !stopped && handOver(new StreamingPage(replayActionItem, savedList, 0, false));
+                });
+            } catch (Throwable throwable) {
+                LOGGER.error("load streaming case error:{} ,action id:{}", throwable.getMessage(),
+                        replayActionItem.getId(), throwable);
+            }
+            return handedSize[0];
+        }
+
+        private boolean handOver(StreamingPage streamingPage) {
+            try {
+                while (!pageQueue.offer(streamingPage, 1, TimeUnit.SECONDS)) {
+                    if (abandoned) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("hand over streaming case interrupted, plan id:{}", replayPlan.getId());
+                return false;
             }
-            progressEvent.onActionAfterSend(replayActionItem);
         }
-        if (isInterrupted || isCancelled) {
-            progressEvent.onReplayPlanFinish(replayPlan, isInterrupted ? ReplayStatusType.FAIL_INTERRUPTED : ReplayStatusType.CANCELLED);
+    }
+
+    private void sendAllActionCase(ReplayPlan replayPlan) {
+        progressTracer.initTotal(replayPlan);
+        final PlanSendContext sendContext = new PlanSendContext(replayPlan, replayPlan.getCaseTotalCount(),
+                sendLimiterMode);
+        for (ReplayActionItem replayActionItem : replayPlan.getReplayActionItemList()) {
+            MDCTracer.addActionId(replayActionItem.getId());
+            sendActionCase(replayActionItem, sendContext);
+        }
+        finishPlanSending(replayPlan, sendContext);
+    }
+
+    private void sendActionCase(ReplayActionItem replayActionItem, PlanSendContext sendContext) {
+        if (replayActionItem.finished()) {
+            return;
+        }
+        if (replayActionItem.isEmpty()) {
+            replayActionItem.setReplayFinishTime(new Date());
+            progressEvent.onActionComparisonFinish(replayActionItem);
+            return;
+        }
+        if (sendContext.cancelled) {
+            progressEvent.onActionCancelled(replayActionItem);
+            return;
+        }
+        if (sendContext.interrupted) {
+            progressEvent.onActionInterrupted(replayActionItem);
+            return;
+        }
+        if (replayActionItem.getReplayFinishTime() == null) {
+            progressEvent.onActionBeforeSend(replayActionItem);
+        }
+        replayActionItem.setSendRateLimiter(sendContext.sendRateLimiter);
+        sendContext.cancelled = sendByPaging(replayActionItem);
+        if (sendContext.cancelled) {
+            return;
+        }
+        sendContext.interrupted = sendContext.sendRateLimiter.failBreak();
+        if (sendContext.interrupted) {
+            progressEvent.onActionInterrupted(replayActionItem);
+            return;
+        }
+        progressEvent.onActionAfterSend(replayActionItem);
+    }
+
+    private void finishPlanSending(ReplayPlan replayPlan, PlanSendContext sendContext) {
+        if (sendContext.interrupted || sendContext.cancelled) {
+            progressEvent.onReplayPlanFinish(replayPlan, sendContext.interrupted ? ReplayStatusType.FAIL_INTERRUPTED :
+                    ReplayStatusType.CANCELLED);
             LOGGER.info("The plan was interrupted, plan id:{} ,appId: {} ", replayPlan.getId(),
                     replayPlan.getAppId());
             return;
@@ -171,16 +628,37 @@ public final class PlanConsumeService {
                 replayPlan.getAppId());
     }
 
+    private static final class PlanSendContext {
+        private final SendSemaphoreLimiter sendRateLimiter;
+        private boolean interrupted;
+        private boolean cancelled;
+
+        private PlanSendContext(ReplayPlan replayPlan, int totalTasks, String sendLimiterMode) {
+            this.sendRateLimiter = new SendSemaphoreLimiter(sendLimiterMode);
+            this.sendRateLimiter.setTotalTasks(totalTasks);
+            this.sendRateLimiter.setSendMaxRate(replayPlan.getReplaySendMaxQps());
+        }
+    }
+
     private boolean sendByPaging(ReplayActionItem replayActionItem) {
         List<ReplayActionCaseItem> sourceItemList;
         boolean isFirst = true;
+        String lastSeenId = null;
+        // the cases sent before should not be queried as waiting, the later pages are after the sent ones
+        if (!replayCaseStatusBuffer.flushWithRetry()) {
+            LOGGER.error("interrupt the action when the case status unflushed, action id: {}",
+                    replayActionItem.getId());
+            replayActionItem.getSendRateLimiter().breakSending();
+            return false;
+        }
         while (true) {
             sourceItemList = replayActionCaseItemRepository.waitingSendList(replayActionItem.getId(),
-                    CommonConstant.MAX_PAGE_SIZE);
+                    CommonConstant.MAX_PAGE_SIZE, lastSeenId);
             replayActionItem.setCaseItemList(sourceItemList);
             if (CollectionUtils.isEmpty(sourceItemList)) {
                 break;
             }
+            lastSeenId = sourceItemList.get(sourceItemList.size() - 1).getId();
             ReplayParentBinder.setupCaseItemParent(sourceItemList, replayActionItem);
             boolean isCanceled = replayCaseTransmitService.send(replayActionItem, isFirst);
             if (isCanceled) {
@@ -205,14 +683,37 @@ public final class PlanConsumeService {
         return size;
     }
 
+    /**
+     * the cases timeout to view are viewed again once, the ones still timeout are saved as load timeout
+     * rather than not found.
+     */
     private int doFixedCaseSave(List<ReplayActionCaseItem> caseItemList) {
         int size = 0;
         String sourceProvider = PINNED;
+        List<ReplayActionCaseItem> viewReplayList = caseRemoteLoadService.viewReplayLoad(caseItemList,
+                sourceProvider);
+        List<Integer> timeoutIndexList = new ArrayList<>();
+        List<ReplayActionCaseItem> timeoutList = new ArrayList<>();
+        for (int i = 0; i < caseItemList.size(); i++) {
+            if (isLoadTimeout(caseItemList.get(i))) {
+                timeoutIndexList.add(i);
+                timeoutList.add(caseItemList.get(i));
+            }
+        }
+        if (!timeoutList.isEmpty()) {
+            LOGGER.info("view the timeout cases again, size: {}", timeoutList.size());
+            List<ReplayActionCaseItem> retriedList = caseRemoteLoadService.viewReplayLoad(timeoutList, sourceProvider);
+            for (int i = 0; i < timeoutIndexList.size(); i++) {
+                viewReplayList.set(timeoutIndexList.get(i), retriedList.get(i));
+            }
+        }
         for (int i = 0; i < caseItemList.size(); i++) {
             ReplayActionCaseItem caseItem = caseItemList.get(i);
-            ReplayActionCaseItem viewReplay = caseRemoteLoadService.viewReplayLoad(caseItem, sourceProvider);
+            ReplayActionCaseItem viewReplay = viewReplayList.get(i);
             if (viewReplay == null) {
-                caseItem.setSendStatus(CaseSendStatusType.REPLAY_CASE_NOT_FOUND.getValue());
+                if (!isLoadTimeout(caseItem)) {
+                    caseItem.setSendStatus(CaseSendStatusType.REPLAY_CASE_NOT_FOUND.getValue());
+                }
             } else {
                 viewReplay.setParent(caseItem.getParent());
                 caseItemList.set(i, viewReplay);
@@ -223,7 +724,19 @@ public final class PlanConsumeService {
         return size;
     }
 
+    private static boolean isLoadTimeout(ReplayActionCaseItem caseItem) {
+        return caseItem.getSendStatus() == CaseSendStatusType.REPLAY_CASE_LOAD_TIMEOUT.getValue();
+    }
+
     private int doPagingLoadCaseSave(ReplayActionItem replayActionItem) {
+        return doPagingLoadCaseSave(replayActionItem, null);
+    }
+
+    /**
+     * @param savedPageConsumer accepts each page after saved, returns false to stop loading
+     */
+    private int doPagingLoadCaseSave(ReplayActionItem replayActionItem,
+                                     Predicate<List<ReplayActionCaseItem>> savedPageConsumer) {
         final ReplayPlan replayPlan = replayActionItem.getParent();
         long beginTimeMills = replayActionItem.getLastRecordTime();
         if (beginTimeMills == 0) {
@@ -243,6 +756,9 @@ public final class PlanConsumeService {
             size += caseItemList.size();
             beginTimeMills = caseItemList.get(caseItemList.size() - 1).getRecordTime();
             replayActionCaseItemRepository.save(caseItemList);
+            if (savedPageConsumer != null && !savedPageConsumer.test(caseItemList)) {
+                break;
+            }
             if (size >= maxCount) {
                 break;
             }
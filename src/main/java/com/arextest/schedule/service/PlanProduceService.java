@@ -13,6 +13,7 @@ import com.arextest.schedule.model.deploy.ServiceInstance;
 import com.arextest.schedule.model.plan.BuildReplayPlanRequest;
 import com.arextest.schedule.plan.PlanContext;
 import com.arextest.schedule.plan.PlanContextCreator;
+import com.arextest.schedule.plan.builder.BuildCaseCountResult;
 import com.arextest.schedule.plan.builder.BuildPlanValidateResult;
 import com.arextest.schedule.plan.builder.ReplayPlanBuilder;
 import com.arextest.schedule.progress.ProgressEvent;
@@ -78,7 +79,22 @@ public class PlanProduceService {
         ReplayPlan replayPlan = build(request, planContext);
         replayPlan.setReplayActionItemList(replayActionItemList);
         ReplayParentBinder.setupReplayActionParent(replayActionItemList, replayPlan);
-        int planCaseCount = planBuilder.buildReplayCaseCount(replayActionItemList, replayPlan.getCaseCountLimit());
+        BuildCaseCountResult caseCountResult = planBuilder.buildReplayCaseCount(replayActionItemList,
+                replayPlan.getCaseCountLimit());
+        String uncountedRemark = StringUtils.EMPTY;
+        if (caseCountResult.hasUncounted()) {
+            // the uncounted actions are skipped rather than replayed as empty, and reported to submit again
+            List<ReplayActionItem> uncountedActionList = caseCountResult.getUncountedActionList();
+            List<String> uncountedOperations = uncountedActionList.stream()
+                    .map(ReplayActionItem::getOperationName).collect(Collectors.toList());
+            replayActionItemList.removeAll(uncountedActionList);
+            if (replayActionItemList.isEmpty()) {
+                return CommonResponse.badResponse("query case count failed or timeout, try submit again",
+                        uncountedOperations);
+            }
+            uncountedRemark = " skipped the operations failed to count cases: " + uncountedOperations;
+        }
+        int planCaseCount = caseCountResult.getCaseCount();
         if (planCaseCount == 0) {
             return CommonResponse.badResponse("loaded empty case,try change time range submit again ");
         }
@@ -93,7 +109,8 @@ public class PlanProduceService {
         }
         progressEvent.onReplayPlanCreated(replayPlan);
         planConsumeService.runAsyncConsume(replayPlan);
-        return CommonResponse.successResponse("create plan success！" + result.getRemark(), replayPlan.getId());
+        return CommonResponse.successResponse("create plan success！" + result.getRemark() + uncountedRemark,
+                replayPlan.getId());
     }
 
     private ReplayPlan build(BuildReplayPlanRequest request, PlanContext planContext) {
@@ -7,6 +7,7 @@ import com.arextest.model.mock.Mocker.Target;
 import com.arextest.model.replay.*;
 import com.arextest.schedule.client.HttpWepServiceApiClient;
 import com.arextest.schedule.common.CommonConstant;
+import com.arextest.schedule.mdc.AbstractTracedRunnable;
 import com.arextest.schedule.model.*;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -20,6 +21,13 @@ import javax.annotation.Resource;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 
 /**
@@ -30,9 +38,18 @@ import java.util.List;
 public class ReplayCaseRemoteLoadService {
     @Resource
     private HttpWepServiceApiClient wepApiClientService;
-    private static final int EMPTY_SIZE = 0;
+    private static final int UNKNOWN_SIZE = -1;
+    private static final long BATCH_VIEW_UNSUPPORTED_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
     @Value("${arex.storage.viewRecord.url}")
     private String viewRecordUrl;
+    @Value("${arex.storage.viewRecord.batch.url:}")
+    private String batchViewRecordUrl;
+    @Value("${arex.schedule.viewRecord.batchSize:20}")
+    private int viewRecordBatchSize;
+    @Value("${arex.schedule.viewRecord.parallelism:8}")
+    private int viewRecordParallelism;
+    @Value("${arex.schedule.viewRecord.chunkTimeoutMillis:10000}")
+    private long viewRecordChunkTimeoutMillis;
     @Value("${arex.storage.countByRange.url}")
     private String countByRangeUrl;
     @Value("${arex.storage.replayCase.url}")
@@ -41,51 +58,201 @@ public class ReplayCaseRemoteLoadService {
     private ObjectMapper objectMapper;
     @Resource
     private ConsoleLogService consoleLogService;
+    @Resource
+    private ExecutorService viewRecordExecutorService;
+    private volatile long batchViewUnsupportedUntil;
 
 
+    /**
+     * @return negative if failed to count, it's unknown rather than empty
+     */
     public int queryCaseCount(ReplayActionItem replayActionItem, Integer caseCountLimit) {
         try {
             PagedRequestType request = buildPagingSearchCaseRequest(replayActionItem, caseCountLimit);
             QueryCaseCountResponseType responseType =
                     wepApiClientService.jsonPost(countByRangeUrl, request, QueryCaseCountResponseType.class);
             if (responseType == null || responseType.getResponseStatusType().hasError()) {
-                return EMPTY_SIZE;
+                return UNKNOWN_SIZE;
             }
             return Math.min(caseCountLimit, (int) responseType.getCount());
         } catch (Exception e) {
             LOGGER.error("query case count error,request: {} ", replayActionItem.getId(), e);
         }
-        return EMPTY_SIZE;
+        return UNKNOWN_SIZE;
     }
 
     public ReplayActionCaseItem viewReplayLoad(ReplayActionCaseItem caseItem, String sourceProvider) {
         try {
-            ViewRecordRequestType viewReplayCaseRequest = new ViewRecordRequestType();
-            viewReplayCaseRequest.setRecordId(caseItem.getRecordId());
-            viewReplayCaseRequest.setCategoryType(caseItem.getCaseType());
-            viewReplayCaseRequest.setSourceProvider(sourceProvider);
+            ViewRecordRequestType viewReplayCaseRequest = buildViewRecordRequest(caseItem, sourceProvider);
             ViewRecordResponseType responseType = wepApiClientService.jsonPost(viewRecordUrl,
                     viewReplayCaseRequest,
                     ViewRecordResponseType.class);
-            if (responseType == null || responseType.getResponseStatusType().hasError()) {
-                LOGGER.warn("view record response invalid recordId:{},response:{}",
-                        viewReplayCaseRequest.getRecordId(), responseType);
-                return null;
+            return toViewCaseItem(viewReplayCaseRequest.getRecordId(), responseType);
+        } catch (Throwable e) {
+            LOGGER.error("view record error: {},recordId: {}", e.getMessage(), caseItem.getRecordId(), e);
+        }
+        return null;
+    }
+
+    /**
+     * view the records of cases by a bounded number of concurrent requests, several records are viewed by one
+     * request if {@code arex.storage.viewRecord.batch.url} is configured.
+     * each chunk is waited up to the chunk timeout since it started, the cases of the chunk timed out are
+     * returned as null and marked {@link CaseSendStatusType#REPLAY_CASE_LOAD_TIMEOUT}, they might be viewed again.
+     *
+     * @return the viewed cases in the same order as the source, null if the record not found or timeout
+     */
+    public List<ReplayActionCaseItem> viewReplayLoad(List<ReplayActionCaseItem> caseItemList, String sourceProvider) {
+        final int caseSize = caseItemList.size();
+        final int chunkSize = batchViewSupported() ? Math.max(1, viewRecordBatchSize) : 1;
+        final int chunkCount = (caseSize + chunkSize - 1) / chunkSize;
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final AtomicLongArray chunkStartTime = new AtomicLongArray(chunkCount);
+        final List<CompletableFuture<List<ReplayActionCaseItem>>> chunkFutureList = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            chunkFutureList.add(new CompletableFuture<>());
+        }
+        int workers = Math.min(Math.max(1, viewRecordParallelism), chunkCount);
+        for (int i = 0; i < workers; i++) {
+            viewRecordExecutorService.execute(new AbstractTracedRunnable() {
+                @Override
+                protected void doWithTracedRunning() {
+                    int chunk;
+                    while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                        chunkStartTime.set(chunk, System.currentTimeMillis());
+                        int fromIndex = chunk * chunkSize;
+                        try {
+                            chunkFutureList.get(chunk).complete(viewChunkLoad(caseItemList.subList(fromIndex,
+                                    Math.min(fromIndex + chunkSize, caseSize)), sourceProvider));
+                        } catch (Throwable throwable) {
+                            chunkFutureList.get(chunk).completeExceptionally(throwable);
+                        }
+                    }
+                }
+            });
+        }
+        List<ReplayActionCaseItem> viewList = new ArrayList<>(caseSize);
+        int timeoutChunks = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int fromIndex = chunk * chunkSize;
+            int toIndex = Math.min(fromIndex + chunkSize, caseSize);
+            List<ReplayActionCaseItem> chunkViewList = awaitChunk(chunkFutureList.get(chunk), chunkStartTime, chunk);
+            if (chunkViewList == null) {
+                timeoutChunks++;
+                for (int i = fromIndex; i < toIndex; i++) {
+                    caseItemList.get(i).setSendStatus(CaseSendStatusType.REPLAY_CASE_LOAD_TIMEOUT.getValue());
+                    viewList.add(null);
+                }
+                continue;
             }
-            List<AREXMocker> recordResultList = responseType.getRecordResult();
-            if (CollectionUtils.isEmpty(recordResultList)) {
-                LOGGER.warn("view record response empty result recordId:{}",
-                        viewReplayCaseRequest.getRecordId());
-                return null;
+            viewList.addAll(chunkViewList);
+        }
+        if (timeoutChunks > 0) {
+            LOGGER.warn("view record timeout chunks: {} of {}, chunk size: {} ,timeout millis: {}", timeoutChunks,
+                    chunkCount, chunkSize, viewRecordChunkTimeoutMillis);
+        }
+        return viewList;
+    }
+
+    /**
+     * the chunk waiting for a worker isn't timeout, it's started after the chunks ahead finished or timeout.
+     *
+     * @return null if the chunk timeout or failed
+     */
+    private List<ReplayActionCaseItem> awaitChunk(CompletableFuture<List<ReplayActionCaseItem>> chunkFuture,
+                                                  AtomicLongArray chunkStartTime, int chunk) {
+        try {
+            while (true) {
+                long startTime = chunkStartTime.get(chunk);
+                long waitMillis = startTime == 0 ? viewRecordChunkTimeoutMillis :
+                        startTime + viewRecordChunkTimeoutMillis - System.currentTimeMillis();
+                if (waitMillis <= 0) {
+                    return chunkFuture.getNow(null);
+                }
+                try {
+                    return chunkFuture.get(waitMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // wait again until the chunk started and exceeded its timeout
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("view record interrupted, chunk: {}", chunk);
+        } catch (ExecutionException e) {
+            LOGGER.error("view record error: {}, chunk: {}", e.getMessage(), chunk, e);
+        }
+        return null;
+    }
+
+    private List<ReplayActionCaseItem> viewChunkLoad(List<ReplayActionCaseItem> chunkList, String sourceProvider) {
+        List<ViewRecordResponseType> responseList = chunkList.size() > 1 ? batchViewLoad(chunkList, sourceProvider) :
+                null;
+        List<ReplayActionCaseItem> chunkViewList = new ArrayList<>(chunkList.size());
+        for (int i = 0; i < chunkList.size(); i++) {
+            ReplayActionCaseItem caseItem = chunkList.get(i);
+            if (responseList == null) {
+                chunkViewList.add(viewReplayLoad(caseItem, sourceProvider));
+            } else {
+                chunkViewList.add(toViewCaseItem(caseItem.getRecordId(), responseList.get(i)));
             }
-            return toCaseItem(recordResultList.get(0));
+        }
+        return chunkViewList;
+    }
 
+    private boolean batchViewSupported() {
+        return StringUtils.isNotEmpty(batchViewRecordUrl) && System.currentTimeMillis() >= batchViewUnsupportedUntil;
+    }
+
+    /**
+     * @return null if the batch is failed or unsupported by the storage, the caller should view them one by one
+     */
+    private List<ViewRecordResponseType> batchViewLoad(List<ReplayActionCaseItem> chunkList, String sourceProvider) {
+        try {
+            List<ViewRecordRequestType> requestList = new ArrayList<>(chunkList.size());
+            for (ReplayActionCaseItem caseItem : chunkList) {
+                requestList.add(buildViewRecordRequest(caseItem, sourceProvider));
+            }
+            BatchViewRecordRequestType batchRequest = new BatchViewRecordRequestType();
+            batchRequest.setRequestList(requestList);
+            long beginTime = System.currentTimeMillis();
+            BatchViewRecordResponseType batchResponse = wepApiClientService.jsonPost(batchViewRecordUrl,
+                    batchRequest, BatchViewRecordResponseType.class);
+            LOGGER.info("batch view record size:{},time used:{} ms", chunkList.size(),
+                    System.currentTimeMillis() - beginTime);
+            if (batchResponse != null && batchResponse.getResponseList() != null &&
+                    batchResponse.getResponseList().size() == chunkList.size()) {
+                return batchResponse.getResponseList();
+            }
+            batchViewUnsupportedUntil = System.currentTimeMillis() + BATCH_VIEW_UNSUPPORTED_RETRY_MILLIS;
+            LOGGER.warn("batch view record unsupported, fall back to single view, size: {}", chunkList.size());
         } catch (Throwable e) {
-            LOGGER.error("view record error: {},recordId: {}", e.getMessage(), caseItem.getRecordId(), e);
+            LOGGER.error("batch view record error: {}, size: {}", e.getMessage(), chunkList.size(), e);
         }
         return null;
     }
 
+    private ViewRecordRequestType buildViewRecordRequest(ReplayActionCaseItem caseItem, String sourceProvider) {
+        ViewRecordRequestType viewReplayCaseRequest = new ViewRecordRequestType();
+        viewReplayCaseRequest.setRecordId(caseItem.getRecordId());
+        viewReplayCaseRequest.setCategoryType(caseItem.getCaseType());
+        viewReplayCaseRequest.setSourceProvider(sourceProvider);
+        return viewReplayCaseRequest;
+    }
+
+    private ReplayActionCaseItem toViewCaseItem(String recordId, ViewRecordResponseType responseType) {
+        if (responseType == null || responseType.getResponseStatusType() == null ||
+                responseType.getResponseStatusType().hasError()) {
+            LOGGER.warn("view record response invalid recordId:{},response:{}", recordId, responseType);
+            return null;
+        }
+        List<AREXMocker> recordResultList = responseType.getRecordResult();
+        if (CollectionUtils.isEmpty(recordResultList)) {
+            LOGGER.warn("view record response empty result recordId:{}", recordId);
+            return null;
+        }
+        return toCaseItem(recordResultList.get(0));
+    }
+
     private ReplayActionCaseItem toCaseItem(AREXMocker mainEntry) {
         Target targetRequest = mainEntry.getTargetRequest();
         if (targetRequest == null) {
@@ -1,31 +1,34 @@
 package com.arextest.schedule.service;
 
 import com.arextest.common.cache.CacheProvider;
-import com.arextest.model.mock.Mocker;
 import com.arextest.schedule.common.CommonConstant;
 import com.arextest.schedule.common.SendSemaphoreLimiter;
 import com.arextest.schedule.comparer.ComparisonWriter;
 import com.arextest.schedule.comparer.ReplayResultComparer;
-import com.arextest.schedule.dao.mongodb.ReplayActionCaseItemRepository;
+import com.arextest.schedule.dao.mongodb.ReplayCaseStatusBuffer;
 import com.arextest.schedule.mdc.MDCTracer;
 import com.arextest.schedule.model.*;
 import com.arextest.schedule.progress.ProgressEvent;
 import com.arextest.schedule.progress.ProgressTracer;
 import com.arextest.schedule.sender.ReplaySender;
 import com.arextest.schedule.sender.ReplaySenderFactory;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.arextest.schedule.utils.ReplayCaseItemCopier;
 import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import static com.arextest.schedule.common.CommonConstant.STOP_PLAN_REDIS_KEY;
@@ -39,12 +42,18 @@ import static com.arextest.schedule.common.CommonConstant.STOP_PLAN_REDIS_KEY;
 public class ReplayCaseTransmitService {
     @Resource
     private ExecutorService sendExecutorService;
+    @Resource
+    private ExecutorService compareExecutorService;
+    @Resource
+    private ExecutorService sendCompletionExecutorService;
     private static final int ACTIVE_SERVICE_RETRY_COUNT = 3;
     private static final int GROUP_SENT_WAIT_TIMEOUT = 300;
+    private static final String ASYNC_SEND_MODE = "async";
+    private static final String INLINE_COMPARE_MODE = "inline";
     @Resource
     private ReplayResultComparer replayResultComparer;
     @Resource
-    private ReplayActionCaseItemRepository replayActionCaseItemRepository;
+    private ReplayCaseStatusBuffer replayCaseStatusBuffer;
     @Resource
     private ProgressTracer progressTracer;
     @Resource
@@ -57,6 +66,26 @@ public class ReplayCaseTransmitService {
     private ProgressEvent progressEvent;
     @Resource
     private ConsoleLogService consoleLogService;
+    /**
+     * blocking: one send thread is held by each case until compared.
+     * async: the sender doesn't hold any thread while waiting the remote, limited by the in-flight permits.
+     */
+    @Value("${arex.schedule.send.mode:blocking}")
+    private String sendMode;
+    @Value("${arex.schedule.send.async.maxInFlight:256}")
+    private int asyncMaxInFlight;
+    private Semaphore asyncInFlightPermits;
+    /**
+     * staged: the sent case is queued to the compare executor, the send pacing depends on the target service only.
+     * inline: the case is compared by the send thread before it's released.
+     */
+    @Value("${arex.schedule.compare.mode:staged}")
+    private String compareMode;
+
+    @PostConstruct
+    void initAsyncInFlightPermits() {
+        this.asyncInFlightPermits = new Semaphore(asyncMaxInFlight);
+    }
 
     public boolean send(ReplayActionItem replayActionItem, boolean isFirst) {
         List<ReplayActionCaseItem> sourceItemList = replayActionItem.getCaseItemList();
@@ -129,31 +158,9 @@ public class ReplayCaseTransmitService {
     }
 
     private ReplayActionCaseItem cloneCaseItem(List<ReplayActionCaseItem> groupValues, int index) {
-        ReplayActionCaseItem caseItem = new ReplayActionCaseItem();
-        ReplayActionCaseItem source = groupValues.get(index);
-        caseItem.setRecordId(source.getRecordId());
-        caseItem.setTargetResultId(source.getTargetResultId());
-        caseItem.setCaseType(source.getCaseType());
-        caseItem.setParent(source.getParent());
-        caseItem.setTargetRequest(cloneTargetRequest(source.getTargetRequest()));
-        caseItem.setSourceResultId(source.getSourceResultId());
-        caseItem.setPlanItemId(source.getPlanItemId());
-        return caseItem;
-    }
-
-    private Mocker.Target cloneTargetRequest(Mocker.Target targetRequest) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        Mocker.Target newTarget = null;
-        try {
-            String oldTargetRequest = objectMapper.writeValueAsString(targetRequest);
-            newTarget = objectMapper.readValue(oldTargetRequest, Mocker.Target.class);
-        } catch (JsonProcessingException e) {
-            LOGGER.error("cloneTargetRequest item error:{}", e.getMessage());
-        }
-        return newTarget;
+        return ReplayCaseItemCopier.copyForSend(groupValues.get(index));
     }
 
-
     private void doSendValuesToRemoteHost(List<ReplayActionCaseItem> values) {
         final int valueSize = values.size();
         final ReplayActionCaseItem caseItem = values.get(0);
@@ -175,7 +182,21 @@ public class ReplayCaseTransmitService {
                     MDCTracer.removeDetailId();
                     return;
                 }
-                semaphore.acquire();
+                if (!semaphore.acquire()) {
+                    groupSentLatch.countDown();
+                    LOGGER.warn("no sending slot acquired, left to send at resuming, case item id:{}",
+                            replayActionCaseItem.getId());
+                    if (Thread.currentThread().isInterrupted()) {
+                        MDCTracer.removeDetailId();
+                        return;
+                    }
+                    continue;
+                }
+                if (asyncSendRequested(replaySender)) {
+                    doSendAsync(replayActionCaseItem, replaySender, groupSentLatch, semaphore);
+                    LOGGER.info("submit replay async sending success");
+                    continue;
+                }
                 AsyncSendCaseTaskRunnable taskRunnable = new AsyncSendCaseTaskRunnable(this);
                 taskRunnable.setCaseItem(replayActionCaseItem);
                 taskRunnable.setReplaySender(replaySender);
@@ -201,6 +222,49 @@ public class ReplayCaseTransmitService {
         }
     }
 
+    private boolean asyncSendRequested(ReplaySender replaySender) {
+        return StringUtils.equalsIgnoreCase(ASYNC_SEND_MODE, sendMode) && replaySender.isAsyncSupported();
+    }
+
+    private void doSendAsync(ReplayActionCaseItem caseItem, ReplaySender replaySender,
+                             CountDownLatch groupSentLatch, SendSemaphoreLimiter limiter) throws InterruptedException {
+        asyncInFlightPermits.acquire();
+        final AsyncSendCaseCompletionRunnable completion = new AsyncSendCaseCompletionRunnable(this);
+        completion.setCaseItem(caseItem);
+        completion.setGroupSentLatch(groupSentLatch);
+        completion.setLimiter(limiter);
+        completion.setInFlightPermits(asyncInFlightPermits);
+        completion.setConsoleLogService(consoleLogService);
+        final CompletableFuture<Boolean> sendFuture;
+        final long sendStartTime = System.currentTimeMillis();
+        try {
+            sendFuture = replaySender.sendAsync(caseItem);
+        } catch (Throwable throwable) {
+            asyncInFlightPermits.release();
+            throw throwable;
+        }
+        sendFuture.whenComplete((success, throwable) -> {
+            completion.setRttMillis(System.currentTimeMillis() - sendStartTime);
+            completion.setSuccess(throwable == null && Boolean.TRUE.equals(success));
+            completion.setSendError(throwable);
+            submitAsyncCompletion(completion);
+        });
+    }
+
+    /**
+     * the completion never runs on the io threads of the async client, the pending completions are bounded
+     * by the in-flight permits acquired before sending. it's only rejected after the executor shutdown,
+     * then the case is left waiting to send again at resuming.
+     */
+    private void submitAsyncCompletion(AsyncSendCaseCompletionRunnable completion) {
+        try {
+            sendCompletionExecutorService.execute(completion);
+        } catch (RejectedExecutionException e) {
+            LOGGER.error("async send completion rejected, the case is left to resume: {}", e.getMessage());
+            completion.abandon();
+        }
+    }
+
     void updateSendResult(ReplayActionCaseItem caseItem, CaseSendStatusType sendStatusType) {
         if (caseItem.getSourceResultId() == null) {
             caseItem.setSourceResultId(StringUtils.EMPTY);
@@ -209,10 +273,55 @@ public class ReplayCaseTransmitService {
             caseItem.setTargetResultId(StringUtils.EMPTY);
         }
         caseItem.setSendStatus(sendStatusType.getValue());
-        if (sendStatusType == CaseSendStatusType.SUCCESS && replayResultComparer.compare(caseItem, true)) {
-            replayActionCaseItemRepository.updateSendResult(caseItem);
-        } else {
+        if (sendStatusType != CaseSendStatusType.SUCCESS) {
             doSendFailedAsFinish(caseItem, sendStatusType);
+            return;
+        }
+        if (StringUtils.equalsIgnoreCase(INLINE_COMPARE_MODE, compareMode)) {
+            if (replayResultComparer.compare(caseItem, true)) {
+                replayCaseStatusBuffer.updateSendResult(caseItem);
+            } else {
+                doSendFailedAsFinish(caseItem, sendStatusType);
+            }
+            return;
+        }
+        // buffer the sent status before comparing, it's written behind by the flush size or interval.
+        // it's not picked up as waiting again: the paging of an action flushes the buffer at the start,
+        // and the later pages are after the sent cases by the keyset of id
+        replayCaseStatusBuffer.updateSendResult(caseItem);
+        submitCompare(caseItem);
+    }
+
+    /**
+     * blocked if the compare queue is full, it's the back pressure from the compare stage to the sending.
+     * the rejected case is kept as sent and compare waiting, it's compared again when the plan resumed.
+     */
+    private void submitCompare(ReplayActionCaseItem caseItem) {
+        try {
+            compareExecutorService.execute(new AsyncCompareCaseTaskRunnable(this, consoleLogService, caseItem));
+        } catch (RejectedExecutionException e) {
+            LOGGER.error("submit compare rejected, left to compare at resuming, case item id: {} ,error: {}",
+                    caseItem.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * the sent cases which comparison was lost, such as the process stopped before compared
+     */
+    public void resumeCompare(List<ReplayActionCaseItem> caseItemList) {
+        for (ReplayActionCaseItem caseItem : caseItemList) {
+            submitCompare(caseItem);
+        }
+    }
+
+    void compareSentResult(ReplayActionCaseItem caseItem) {
+        final int sentStatus = caseItem.getSendStatus();
+        if (!replayResultComparer.compare(caseItem, true)) {
+            doSendFailedAsFinish(caseItem, CaseSendStatusType.SUCCESS);
+            return;
+        }
+        if (caseItem.getSendStatus() != sentStatus) {
+            replayCaseStatusBuffer.updateSendResult(caseItem);
         }
     }
 
@@ -271,14 +380,14 @@ public class ReplayCaseTransmitService {
             if (caseItem.getTargetResultId() == null) {
                 caseItem.setTargetResultId(StringUtils.EMPTY);
             }
-            boolean updateResult = replayActionCaseItemRepository.updateSendResult(caseItem);
+            replayCaseStatusBuffer.updateSendResult(caseItem);
             String errorMessage = caseItem.getSendErrorMessage();
             if (StringUtils.isEmpty(errorMessage)) {
                 errorMessage = sendStatusType.name();
             }
             comparisonWriter.writeIncomparable(caseItem, errorMessage);
             progressTracer.finishOne(caseItem);
-            LOGGER.info("do send failed as finish success case id: {},updateResult:{}", caseItem.getId(), updateResult);
+            LOGGER.info("do send failed as finish success case id: {}", caseItem.getId());
         } catch (Throwable throwable) {
             LOGGER.error("doSendFailedAsFinish error:{}", throwable.getMessage(), throwable);
         }
@@ -15,6 +15,7 @@ import com.arextest.schedule.comparer.ComparisonWriter;
 import com.arextest.schedule.model.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -29,6 +30,7 @@ import java.util.List;
 @Slf4j
 @Component
 public final class ReplayReportService implements ComparisonWriter {
+    private static final String DIRECT_PUSH_MODE = "direct";
     @Resource
     private HttpWepServiceApiClient httpWepServiceApiClient;
     @Value("${arex.report.init.url}")
@@ -39,6 +41,14 @@ public final class ReplayReportService implements ComparisonWriter {
     private String pushReplayStatusUrl;
     @Resource
     private ConsoleLogService consoleLogService;
+    @Resource
+    private CompareResultBatchPusher compareResultBatchPusher;
+    /**
+     * batch: the compared results are pushed by batches asynchronously.
+     * direct: one request is pushed for each case by the comparing thread.
+     */
+    @Value("${arex.schedule.report.push.mode:batch}")
+    private String pushMode;
 
     public void initReportInfo(ReplayPlan replayPlan) {
         ReportInitialRequestType requestType = new ReportInitialRequestType();
@@ -125,7 +135,6 @@ public final class ReplayReportService implements ComparisonWriter {
             return true;
         }
         int comparedSize = comparedResult.size();
-        PushCompareResultsRequestType requestType = new PushCompareResultsRequestType();
         List<CompareResult> results = new ArrayList<>(comparedSize);
         CompareResult requestResult;
         ReplayCompareResult sourceResult;
@@ -135,11 +144,38 @@ public final class ReplayReportService implements ComparisonWriter {
             requestResult = converter.to(sourceResult);
             results.add(requestResult);
         }
+        return pushCompareResults(results);
+    }
+
+    /**
+     * push the pending compared results, it should be called before the plan or action finished is pushed.
+     */
+    public void flushCompareResults() {
+        if (!isDirectPush()) {
+            compareResultBatchPusher.flush();
+        }
+    }
+
+    private boolean isDirectPush() {
+        return StringUtils.equalsIgnoreCase(DIRECT_PUSH_MODE, pushMode);
+    }
+
+    private boolean pushCompareResults(List<CompareResult> results) {
+        if (!isDirectPush()) {
+            try {
+                compareResultBatchPusher.add(results);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("add compare results to push interrupted, push them directly");
+            }
+        }
+        PushCompareResultsRequestType requestType = new PushCompareResultsRequestType();
         requestType.setResults(results);
         Response response = httpWepServiceApiClient.jsonPost(pushReplayCompareResultUrl, requestType,
                 GenericResponseType.class);
         if (response == null || response.getResponseStatusType().hasError()) {
-            LOGGER.warn("push replay compared result to report size: {}, result:{}", comparedSize, response);
+            LOGGER.warn("push replay compared result to report size: {}, result:{}", results.size(), response);
         }
         return true;
     }
@@ -157,16 +193,9 @@ public final class ReplayReportService implements ComparisonWriter {
         if (caseItem == null) {
             return true;
         }
-        PushCompareResultsRequestType requestType = new PushCompareResultsRequestType();
         List<CompareResult> results = new ArrayList<>();
         results.add(toQMQCompareResult(caseItem));
-        requestType.setResults(results);
-        Response response = httpWepServiceApiClient.jsonPost(pushReplayCompareResultUrl, requestType,
-                GenericResponseType.class);
-        if (response == null || response.getResponseStatusType().hasError()) {
-            LOGGER.warn("writeQmqCompareResult to report result:{}", response);
-        }
-        return true;
+        return pushCompareResults(results);
     }
 
     private CompareResult toQMQCompareResult(ReplayActionCaseItem caseItem) {
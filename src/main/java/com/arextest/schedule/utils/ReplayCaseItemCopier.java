@@ -0,0 +1,52 @@
+package com.arextest.schedule.utils;
+
+import com.arextest.model.constants.MockAttributeNames;
+import com.arextest.model.mock.Mocker.Target;
+import com.arextest.schedule.model.ReplayActionCaseItem;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The structural copy of case items sent more than once, the body is immutable and shared,
+ * only the attributes and headers maps which the senders put into are copied.
+ *
+ * @since 2023/4/20
+ */
+public final class ReplayCaseItemCopier {
+    private ReplayCaseItemCopier() {
+
+    }
+
+    public static ReplayActionCaseItem copyForSend(ReplayActionCaseItem source) {
+        ReplayActionCaseItem caseItem = new ReplayActionCaseItem();
+        caseItem.setRecordId(source.getRecordId());
+        caseItem.setTargetResultId(source.getTargetResultId());
+        caseItem.setCaseType(source.getCaseType());
+        caseItem.setParent(source.getParent());
+        caseItem.setTargetRequest(copyTarget(source.getTargetRequest()));
+        caseItem.setSourceResultId(source.getSourceResultId());
+        caseItem.setPlanItemId(source.getPlanItemId());
+        return caseItem;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Target copyTarget(Target source) {
+        if (source == null) {
+            return null;
+        }
+        Target target = new Target();
+        target.setBody(source.getBody());
+        target.setType(source.getType());
+        Map<String, Object> attributes = source.getAttributes();
+        if (attributes != null) {
+            Map<String, Object> copiedAttributes = new HashMap<>(attributes);
+            Object headers = copiedAttributes.get(MockAttributeNames.HEADERS);
+            if (headers instanceof Map) {
+                copiedAttributes.put(MockAttributeNames.HEADERS, new HashMap<>((Map<String, Object>) headers));
+            }
+            target.setAttributes(copiedAttributes);
+        }
+        return target;
+    }
+}
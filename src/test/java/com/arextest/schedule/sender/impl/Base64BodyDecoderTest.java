@@ -0,0 +1,74 @@
+package com.arextest.schedule.sender.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * @since 2023/4/26
+ */
+public class Base64BodyDecoderTest {
+    private static final Pattern FORMER_PATTERN =
+            Pattern.compile("^([A-Za-z0-9+/]{4})*([A-Za-z0-9+/]{3}=|[A-Za-z0-9+/]{2}==)?$");
+
+    @Test
+    public void isBase64ShouldMatchFormerPatternOnValidInputs() {
+        String[] validInputs = {"QUJD", "QUJDREVG", "a+b/c+d/", "0123456789+/ABCD"};
+        for (String input : validInputs) {
+            assertSameAsFormerPattern(input);
+            Assert.assertTrue(input, Base64BodyDecoder.isBase64(input));
+        }
+    }
+
+    @Test
+    public void isBase64ShouldMatchFormerPatternOnPaddedInputs() {
+        String[] paddedInputs = {"QUI=", "QQ==", "QUJDREU=", "QUJDRA==", "=", "==", "===", "====", "Q===",
+                "QU=I", "Q=I=", "QUJD====", "QUJD=QUI"};
+        for (String input : paddedInputs) {
+            assertSameAsFormerPattern(input);
+        }
+        Assert.assertTrue(Base64BodyDecoder.isBase64("QUI="));
+        Assert.assertTrue(Base64BodyDecoder.isBase64("QQ=="));
+        Assert.assertFalse(Base64BodyDecoder.isBase64("===="));
+        Assert.assertFalse(Base64BodyDecoder.isBase64("QU=I"));
+    }
+
+    @Test
+    public void isBase64ShouldMatchFormerPatternOnInvalidInputs() {
+        String[] invalidInputs = {"Q", "QU", "QUJ", "QUJDR", "QUJ-", "QUJ_", "QU D", "QUJ\n", "{\"a\":1}",
+                "QUJé", "中文中文"};
+        for (String input : invalidInputs) {
+            assertSameAsFormerPattern(input);
+            Assert.assertFalse(input, Base64BodyDecoder.isBase64(input));
+        }
+    }
+
+    @Test
+    public void isBase64ShouldMatchFormerPatternOnEmptyInput() {
+        assertSameAsFormerPattern("");
+        Assert.assertArrayEquals(new byte[0], Base64BodyDecoder.decode(""));
+    }
+
+    @Test
+    public void decodeShouldBeSameAsJdkDecoder() {
+        Random random = new Random(20230426L);
+        for (int length = 0; length <= 64; length++) {
+            byte[] source = new byte[length];
+            random.nextBytes(source);
+            String encoded = Base64.getEncoder().encodeToString(source);
+
+            assertSameAsFormerPattern(encoded);
+            Assert.assertTrue(encoded, Base64BodyDecoder.isBase64(encoded));
+            Assert.assertArrayEquals(encoded, source, Base64BodyDecoder.decode(encoded));
+        }
+        Assert.assertArrayEquals("ABCDE".getBytes(StandardCharsets.UTF_8), Base64BodyDecoder.decode("QUJDREU="));
+    }
+
+    private static void assertSameAsFormerPattern(String input) {
+        Assert.assertEquals(input, FORMER_PATTERN.matcher(input).matches(), Base64BodyDecoder.isBase64(input));
+    }
+}
@@ -0,0 +1,75 @@
+package com.arextest.schedule.utils;
+
+import com.arextest.model.constants.MockAttributeNames;
+import com.arextest.model.mock.Mocker.Target;
+import com.arextest.schedule.model.ReplayActionCaseItem;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @since 2023/4/24
+ */
+public class ReplayCaseItemCopierTest {
+
+    @Test
+    public void copyForSendShouldNotChangeSource() {
+        ReplayActionCaseItem source = new ReplayActionCaseItem();
+        source.setRecordId("record-1");
+        source.setTargetRequest(newTarget());
+
+        ReplayActionCaseItem copied = ReplayCaseItemCopier.copyForSend(source);
+        copied.getTargetRequest().getAttributes().put("copied", "yes");
+        copied.requestHeaders().put("arex-record-id", "changed");
+
+        Target sourceTarget = source.getTargetRequest();
+        Assert.assertEquals("record-1", copied.getRecordId());
+        Assert.assertFalse(sourceTarget.getAttributes().containsKey("copied"));
+        Assert.assertEquals("record-1", source.requestHeaders().get("arex-record-id"));
+        Assert.assertEquals(1, source.requestHeaders().size());
+    }
+
+    @Test
+    public void copyTargetShouldShareBodyAndType() {
+        Target source = newTarget();
+
+        Target copied = ReplayCaseItemCopier.copyTarget(source);
+
+        Assert.assertSame(source.getBody(), copied.getBody());
+        Assert.assertSame(source.getType(), copied.getType());
+        Assert.assertNotSame(source.getAttributes(), copied.getAttributes());
+        Assert.assertNotSame(source.getAttributes().get(MockAttributeNames.HEADERS),
+                copied.getAttributes().get(MockAttributeNames.HEADERS));
+        Assert.assertEquals(source.getAttributes().get(MockAttributeNames.HEADERS),
+                copied.getAttributes().get(MockAttributeNames.HEADERS));
+    }
+
+    @Test
+    public void copyTargetShouldHandleNull() {
+        Assert.assertNull(ReplayCaseItemCopier.copyTarget(null));
+
+        Target source = new Target();
+        source.setBody("{}");
+        Target copied = ReplayCaseItemCopier.copyTarget(source);
+        Assert.assertEquals("{}", copied.getBody());
+        Assert.assertNull(copied.getAttributes());
+
+        ReplayActionCaseItem copiedItem = ReplayCaseItemCopier.copyForSend(new ReplayActionCaseItem());
+        Assert.assertNull(copiedItem.getTargetRequest());
+    }
+
+    private static Target newTarget() {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("arex-record-id", "record-1");
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(MockAttributeNames.HEADERS, headers);
+        attributes.put("RequestPath", "/api/test");
+        Target target = new Target();
+        target.setBody("{\"id\":1}");
+        target.setType("java.lang.String");
+        target.setAttributes(attributes);
+        return target;
+    }
+}